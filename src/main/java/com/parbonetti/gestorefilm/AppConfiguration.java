@@ -13,8 +13,27 @@ public final class AppConfiguration {
 
     public static final String AUTO_SAVE_FILENAME = "movies_autosave";
 
+    // Attesa massima tra una modifica e la scrittura su disco (fsync) del journal dell'auto-save (ms)
+    public static final int AUTO_SAVE_INTERVAL_MS = 1000;
+
+    // Record nel journal oltre i quali si scrive un nuovo snapshot completo
+    public static final int JOURNAL_COMPACTION_RECORDS = 5000;
+
     public static final String DEFAULT_FILENAME = "movies";
 
+    // Film per blocco nel caricamento progressivo dell'auto-save
+    public static final int LOAD_BATCH_SIZE = 5000;
+
+    // Film decodificati tenuti in memoria quando la collezione viene letta da un file binario
+    public static final int SNAPSHOT_CACHE_SIZE = 10000;
+
+    // ========== SEARCH ==========
+
+    public static final int FUZZY_SEARCH_LIMIT = 200;
+
+    // Attesa dopo l'ultimo tasto prima di rieseguire la ricerca (ms)
+    public static final int SEARCH_DEBOUNCE_MS = 150;
+
     // ========== MOVIE VALIDATION ==========
 
     public static final int MIN_RATING = 1;
@@ -0,0 +1,84 @@
+package com.parbonetti.gestorefilm.controller;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieCollection;
+import com.parbonetti.gestorefilm.persistence.PersistenceStrategy;
+
+import javax.swing.*;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+
+// Carica l'auto-save in un thread in background: la finestra compare subito e i film
+// arrivano alla collezione (sull'EDT) a blocchi, man mano che il file viene letto.
+// Registra i tempi del primo blocco visibile e del caricamento completo
+class AutoSaveLoader {
+    private final MovieCollection collection;
+    private final PersistenceStrategy persistence;
+    private volatile boolean cancelled;
+    private boolean firstBatchShown;
+
+    AutoSaveLoader(MovieCollection collection, PersistenceStrategy persistence) {
+        this.collection = collection;
+        this.persistence = persistence;
+    }
+
+    // onProgress riceve i film caricati finora; alla fine viene chiamato sull'EDT onFinished, oppure
+    // onFailed se il file non è stato letto per intero (la collezione ne contiene solo una parte).
+    // Nessuno dei due dopo cancel()
+    void start(String filepath, int batchSize, IntConsumer onProgress, Runnable onFinished, Runnable onFailed) {
+        long start = System.nanoTime();
+        Thread thread = new Thread(() -> {
+            try {
+                persistence.load(filepath, batchSize, batch -> publish(batch, start, onProgress));
+                SwingUtilities.invokeLater(() -> {
+                    if (cancelled) {
+                        return;
+                    }
+                    System.out.println("Auto-save caricato: " + collection.getMovieCount() + " film in "
+                            + elapsedMs(start) + " ms");
+                    onFinished.run();
+                });
+            } catch (CancellationException e) {
+                System.out.println("Caricamento auto-save interrotto");
+            } catch (RuntimeException e) {
+                System.err.println("Errore caricamento auto-save: " + e.getMessage());
+                SwingUtilities.invokeLater(() -> {
+                    if (!cancelled) {
+                        onFailed.run();
+                    }
+                });
+            }
+        }, "caricamento-autosave");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Es. l'utente carica un altro file: i blocchi non ancora applicati vengono scartati
+    void cancel() {
+        cancelled = true;
+    }
+
+    private void publish(List<Movie> batch, long start, IntConsumer onProgress) {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (cancelled) {
+                return;
+            }
+            collection.addMovies(batch);
+            if (!firstBatchShown) {
+                firstBatchShown = true;
+                System.out.println("Primi " + batch.size() + " film visibili dopo " + elapsedMs(start)
+                        + " ms (" + ManagementFactory.getRuntimeMXBean().getUptime() + " ms dall'avvio)");
+            }
+            onProgress.accept(collection.getMovieCount());
+        });
+    }
+
+    private static long elapsedMs(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
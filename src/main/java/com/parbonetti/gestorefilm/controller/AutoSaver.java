@@ -0,0 +1,244 @@
+package com.parbonetti.gestorefilm.controller;
+
+import com.parbonetti.gestorefilm.AppConfiguration;
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieChangeListener;
+import com.parbonetti.gestorefilm.model.MovieCollection;
+import com.parbonetti.gestorefilm.persistence.JSONPersistence;
+import com.parbonetti.gestorefilm.persistence.MovieJournal;
+import com.parbonetti.gestorefilm.persistence.PersistenceStrategy;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Auto-save a journal: ogni modifica aggiunge un record di poche centinaia di byte, scritto da un
+// thread in background e forzato su disco al più ogni syncIntervalMs. Superati
+// JOURNAL_COMPACTION_RECORDS record si scrive un nuovo snapshot JSON e il journal riparte vuoto.
+// All'avvio: snapshot (AutoSaveLoader), poi replay() del journal. Nessuna attesa sull'EDT:
+// il journal si legge sul thread dell'auto-save e flush() va chiamato da un altro thread
+class AutoSaver implements MovieChangeListener {
+    private final MovieCollection collection;
+    // Sempre JSON, il formato letto all'avvio, indipendentemente da quello scelto per Salva/Carica;
+    // file interno, quindi con il checksum in coda
+    private final PersistenceStrategy snapshots = new JSONPersistence(false, true);
+    private final String filename;
+    private final long syncIntervalMs;
+    private final ScheduledExecutorService executor;
+
+    // Solo sul thread dell'auto-save
+    private MovieJournal journal;
+    private int recordsSinceSnapshot;
+    // Parte del journal scritta nelle sessioni precedenti, l'unica da riapplicare
+    // (tutto il file se non è stato possibile aprirlo: in questa sessione non si scrive)
+    private long replayableLength = Long.MAX_VALUE;
+
+    private boolean syncScheduled;
+    // Finché snapshot e journal non sono stati riapplicati per intero non si compatta: lo snapshot
+    // nuovo sarebbe parziale. Se il caricamento fallisce resta false fino a un nuovo caricamento
+    private volatile boolean restored;
+    // Solo EDT: le modifiche riapplicate dal journal non vanno registrate di nuovo
+    private boolean replaying;
+    // Solo EDT: film modificati in questa sessione prima del replay, la cui versione nel journal
+    // è più vecchia; null a replay concluso
+    private Set<String> touchedIds = new HashSet<>();
+    // Solo EDT: un caricamento da file arrivato prima del replay lo rende inutile
+    private int reloads;
+
+    AutoSaver(MovieCollection collection, String filename, long syncIntervalMs) {
+        this.collection = collection;
+        this.filename = filename;
+        this.syncIntervalMs = syncIntervalMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "auto-save");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::openJournal);
+    }
+
+    // I record vengono preparati qui, sull'EDT e dentro il lock della collezione:
+    // l'ordine nel journal è quello delle modifiche
+    @Override
+    public void movieInserted(int position, Movie movie) {
+        append(movie.getId(), MovieJournal.put(movie));
+    }
+
+    // Arriva solo dal caricamento dello snapshot: quei film sono già su disco
+    @Override
+    public void moviesInserted(int fromPosition, int toPosition) {
+    }
+
+    @Override
+    public void movieUpdated(int position, Movie movie) {
+        append(movie.getId(), MovieJournal.put(movie));
+    }
+
+    @Override
+    public void movieRemoved(int position, Movie movie) {
+        append(movie.getId(), MovieJournal.delete(movie.getId()));
+    }
+
+    // Contenuto sostituito per intero: il journal non basta, serve uno snapshot
+    @Override
+    public void collectionReloaded() {
+        reloads++;
+        touchedIds = null;
+        restored = true;
+        executor.execute(this::compact);
+    }
+
+    // Riapplica le modifiche registrate dopo l'ultimo snapshot: il journal viene letto sul thread
+    // dell'auto-save, dopo le scritture in coda, e le modifiche arrivano alla collezione sull'EDT
+    void replay() {
+        int reloadsAtStart = reloads;
+        executor.execute(() -> {
+            List<String> ids = new ArrayList<>();
+            List<Movie> movies = new ArrayList<>(); // null per le cancellazioni
+            try {
+                MovieJournal.read(journalPath(), replayableLength, movie -> {
+                    ids.add(movie.getId());
+                    movies.add(movie);
+                }, id -> {
+                    ids.add(id);
+                    movies.add(null);
+                });
+            } catch (IOException e) {
+                System.err.println("Errore lettura journal: " + e.getMessage());
+            }
+            SwingUtilities.invokeLater(() -> apply(ids, movies, reloadsAtStart));
+        });
+    }
+
+    // Forza su disco i record scritti finora, dopo quelli in coda. Attende il thread dell'auto-save: non va chiamato
+    // sull'EDT (es. da uno shutdown hook)
+    void flush() {
+        try {
+            executor.submit(this::sync).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Errore auto-save: " + e.getCause().getMessage());
+        }
+    }
+
+    private void apply(List<String> ids, List<Movie> movies, int reloadsAtStart) {
+        if (reloads != reloadsAtStart) {
+            return;
+        }
+        int count = 0;
+        replaying = true;
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                if (touchedIds != null && touchedIds.contains(ids.get(i))) {
+                    continue;
+                }
+                Movie movie = movies.get(i);
+                if (movie == null) {
+                    collection.removeMovie(ids.get(i));
+                } else if (collection.getMovie(movie.getId()) != null) {
+                    collection.updateMovie(movie);
+                } else {
+                    collection.addMovie(movie);
+                }
+                count++;
+            }
+        } finally {
+            replaying = false;
+        }
+        touchedIds = null;
+        restored = true;
+        if (count > 0) {
+            System.out.println("Journal: riapplicate " + count + " modifiche");
+            executor.execute(this::compact);
+        }
+    }
+
+    private void append(String id, byte[] record) {
+        if (replaying) {
+            return;
+        }
+        if (touchedIds != null) {
+            touchedIds.add(id);
+        }
+        executor.execute(() -> write(record));
+        scheduleSync();
+    }
+
+    private synchronized void scheduleSync() {
+        if (!syncScheduled) {
+            syncScheduled = true;
+            executor.schedule(this::sync, syncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void openJournal() {
+        try {
+            journal = new MovieJournal(journalPath());
+            replayableLength = journal.size();
+        } catch (IOException e) {
+            System.err.println("Errore apertura journal: " + e.getMessage());
+        }
+    }
+
+    private void write(byte[] record) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(record);
+            recordsSinceSnapshot++;
+            if (recordsSinceSnapshot >= AppConfiguration.JOURNAL_COMPACTION_RECORDS) {
+                compact();
+            }
+        } catch (IOException e) {
+            System.err.println("Errore auto-save: " + e.getMessage());
+        }
+    }
+
+    private void sync() {
+        synchronized (this) {
+            syncScheduled = false;
+        }
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.force();
+        } catch (IOException e) {
+            System.err.println("Errore auto-save: " + e.getMessage());
+        }
+    }
+
+    // Snapshot completo e journal azzerato. I record ancora in coda sono già compresi nello
+    // snapshot, ma riapplicarli dopo di esso non cambia il risultato
+    private void compact() {
+        if (!restored || journal == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Movie> movies = collection.getAllMovies();
+        try {
+            // save() ritorna con lo snapshot già su disco e rinominato: solo dopo si svuota il journal
+            snapshots.save(movies, filename);
+            journal.truncate();
+            recordsSinceSnapshot = 0;
+            replayableLength = 0;
+            System.out.println("Auto-save: snapshot di " + movies.size() + " film in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms, journal azzerato");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Errore snapshot auto-save: " + e.getMessage());
+        }
+    }
+
+    private String journalPath() {
+        return filename + ".journal";
+    }
+}
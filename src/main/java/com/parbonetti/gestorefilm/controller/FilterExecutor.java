@@ -0,0 +1,67 @@
+package com.parbonetti.gestorefilm.controller;
+
+import javax.swing.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Esegue le query dei filtri fuori dall'EDT: attende che l'utente smetta di scrivere,
+// scarta le richieste superate e pubblica sull'EDT solo il risultato più recente.
+// submit, cancel e isPending vanno chiamati dall'EDT
+class FilterExecutor {
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> pending;
+    private long generation;
+
+    FilterExecutor() {
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "filtri");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    <T> void submit(Supplier<T> query, Consumer<T> publish, long delayMs) {
+        cancel();
+        long requestGeneration = generation;
+        pending = executor.schedule(() -> {
+            T result;
+            try {
+                result = query.get();
+            } catch (RuntimeException e) {
+                System.err.println("Errore durante il filtro: " + e.getMessage());
+                // Niente da pubblicare, ma la richiesta è conclusa: non va rieseguita alla prossima modifica
+                SwingUtilities.invokeLater(() -> {
+                    if (requestGeneration == generation) {
+                        pending = null;
+                    }
+                });
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                // Nel frattempo è arrivata una richiesta più recente
+                if (requestGeneration != generation) {
+                    return;
+                }
+                pending = null;
+                publish.accept(result);
+            });
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Una richiesta già in esecuzione termina, ma il suo risultato viene ignorato
+    void cancel() {
+        generation++;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    boolean isPending() {
+        return pending != null;
+    }
+}
@@ -2,22 +2,36 @@ package com.parbonetti.gestorefilm.controller;
 
 import com.parbonetti.gestorefilm.AppConfiguration;
 import com.parbonetti.gestorefilm.commands.*;
+import com.parbonetti.gestorefilm.model.GenreListener;
 import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieChangeListener;
 import com.parbonetti.gestorefilm.model.MovieCollection;
+import com.parbonetti.gestorefilm.model.MovieQuery;
+import com.parbonetti.gestorefilm.model.SortKey;
 import com.parbonetti.gestorefilm.model.ViewingStatus;
+import com.parbonetti.gestorefilm.persistence.BinaryPersistence;
 import com.parbonetti.gestorefilm.persistence.CSVPersistence;
 import com.parbonetti.gestorefilm.persistence.JSONPersistence;
 import com.parbonetti.gestorefilm.persistence.PersistenceStrategy;
 import com.parbonetti.gestorefilm.view.MainView;
 import com.parbonetti.gestorefilm.view.MovieFormDialog;
 import javax.swing.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.List;
 
 public class MovieController{
     private final MainView view;
     private final MovieCollection collection;
     private final CommandManager commandManager;;
+    private final FilterExecutor filterExecutor = new FilterExecutor();
+    private final AutoSaver autoSaver;
+    private AutoSaveLoader autoSaveLoader;
     private String currentFilepath = AppConfiguration.DEFAULT_FILENAME;
+    private SortKey sortKey;
+    private boolean sortDescending;
+    // Risultato mostrato in tabella, da cui si ricava il successivo ad ogni modifica
+    private List<Movie> shownMovies;
 
     public MovieController(MainView view) {
         this.view = view;
@@ -27,33 +41,90 @@ public class MovieController{
         collection.setPersistenceStrategy(new JSONPersistence());
 
         this.commandManager = new CommandManager(AppConfiguration.MAX_COMMAND_HISTORY_SIZE);
+        this.autoSaver = new AutoSaver(collection, AppConfiguration.AUTO_SAVE_FILENAME,
+                AppConfiguration.AUTO_SAVE_INTERVAL_MS);
 
-        loadAutoSave();
         registerListeners();
         refreshView();
+
+        // Lista generi nel filtro: caricata una volta, poi aggiornata solo quando un genere compare o scompare
+        view.getFilterPanel().updateGenres(collection.getAllGenres());
+        collection.addGenreListener(new GenreListener() {
+            @Override
+            public void genreAdded(String genre) {
+                view.getFilterPanel().addGenre(genre);
+            }
+
+            @Override
+            public void genreRemoved(String genre) {
+                view.getFilterPanel().removeGenre(genre);
+            }
+        });
+
+        // La tabella è aggiornata riga per riga, con o senza filtri: il nuovo risultato si ricava
+        // dal precedente verificando solo il film modificato, e selezione e scroll restano
+        collection.addChangeListener(new MovieChangeListener() {
+            @Override
+            public void movieInserted(int position, Movie movie) {
+                followChange();
+            }
+
+            @Override
+            public void moviesInserted(int fromPosition, int toPosition) {
+                followChange();
+            }
+
+            @Override
+            public void movieUpdated(int position, Movie movie) {
+                followChange();
+            }
+
+            @Override
+            public void movieRemoved(int position, Movie movie) {
+                followChange();
+            }
+
+            @Override
+            public void collectionReloaded() {
+                refreshView();
+            }
+        });
+
+        // Ogni modifica successiva finisce nel journal dell'auto-save
+        collection.addChangeListener(autoSaver);
+
+        // Dopo i listener: i blocchi caricati arrivano come eventi di inserimento
+        loadAutoSave();
     }
 
     private void loadAutoSave() {
-        try {
-            java.io.File autoSaveFile = new java.io.File(AppConfiguration.AUTO_SAVE_FILENAME + ".json");
-            if (autoSaveFile.exists()) {
-                collection.load(AppConfiguration.AUTO_SAVE_FILENAME);
-                System.out.println("Auto-save caricato: " + collection.getMovieCount() + " film");
-            } else {
-                System.out.println("Nessun auto-save trovato (prima esecuzione)");
-            }
-        } catch (Exception e) {
-            System.err.println("Errore caricamento auto-save: " + e.getMessage());
+        java.io.File autoSaveFile = new java.io.File(AppConfiguration.AUTO_SAVE_FILENAME + ".json");
+        if (!autoSaveFile.exists()) {
+            System.out.println("Nessun auto-save trovato (prima esecuzione)");
+            // Può esistere comunque un journal, se non è mai stato scritto uno snapshot
+            autoSaver.replay();
+            return;
         }
+
+        view.showStatus("Caricamento collezione...");
+        autoSaveLoader = new AutoSaveLoader(collection, new JSONPersistence());
+        autoSaveLoader.start(AppConfiguration.AUTO_SAVE_FILENAME, AppConfiguration.LOAD_BATCH_SIZE,
+                count -> view.showStatus("Caricamento collezione... " + count + " film"),
+                this::finishAutoSaveLoading, this::failAutoSaveLoading);
     }
 
-    private void autoSave() {
-        try {
-            collection.save(AppConfiguration.AUTO_SAVE_FILENAME);
-            System.out.println("Auto-save eseguito: " + collection.getMovieCount() + " film salvati");
-        } catch (Exception e) {
-            System.err.println("Errore auto-save: " + e.getMessage());
-        }
+    private void finishAutoSaveLoading() {
+        autoSaveLoader = null;
+        view.showStatus(null);
+        // Modifiche successive all'ultimo snapshot (quelle fatte durante il caricamento restano)
+        autoSaver.replay();
+    }
+
+    // Collezione parziale: il journal non si riapplica e l'auto-save non viene riscritto
+    // finché non si carica un file
+    private void failAutoSaveLoading() {
+        autoSaveLoader = null;
+        view.showStatus("Auto-save non caricato per intero");
     }
 
     private void registerListeners() {
@@ -72,27 +143,41 @@ public class MovieController{
 
         view.getFilterPanel().getClearFilterButton().addActionListener(e -> handleClearFilters());
 
+        // Alla chiusura il journal viene forzato su disco, fuori dall'EDT
+        Runtime.getRuntime().addShutdownHook(new Thread(autoSaver::flush, "auto-save-flush"));
+
         view.getFilterPanel().getSearchField().getDocument().addDocumentListener(
                 new javax.swing.event.DocumentListener() {
                     @Override
                     public void insertUpdate(javax.swing.event.DocumentEvent e) {
-                        handleApplyFilters();
+                        handleSearchTextChanged();
                     }
 
                     @Override
                     public void removeUpdate(javax.swing.event.DocumentEvent e) {
-                        handleApplyFilters();
+                        handleSearchTextChanged();
                     }
 
                     @Override
                     public void changedUpdate(javax.swing.event.DocumentEvent e) {
-                        handleApplyFilters();
+                        handleSearchTextChanged();
                     }
                 }
         );
         view.getFilterPanel().getGenreComboBox().addActionListener(e -> handleApplyFilters());
         view.getFilterPanel().getStatusComboBox().addActionListener(e -> handleApplyFilters());
         view.getFilterPanel().getRatingComboBox().addActionListener(e -> handleApplyFilters());
+        view.getFilterPanel().getFuzzyCheckBox().addActionListener(e -> handleApplyFilters());
+        view.getFilterPanel().getMinYearSpinner().addChangeListener(e -> handleApplyFilters());
+        view.getFilterPanel().getMaxYearSpinner().addChangeListener(e -> handleApplyFilters());
+
+        // Click sull'intestazione: ordina per quella colonna, un secondo click inverte
+        view.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                handleSort(view.getSortKeyAt(e.getPoint()));
+            }
+        });
         view.getRootPane().registerKeyboardAction(
                 e -> handleUndo(),
                 KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_Z,
@@ -104,8 +189,6 @@ public class MovieController{
     private void executeCommand(Command command) {
         commandManager.executeCommand(command);
         view.getUndoButton().setEnabled(commandManager.canUndo());
-        autoSave();
-        refreshView();
     }
 
     private void handleUndo() {
@@ -114,18 +197,56 @@ public class MovieController{
         if (undoneCommand != null) {
             view.showMessage("Annullato: " + undoneCommand.getDescription());
             view.getUndoButton().setEnabled(commandManager.canUndo());
-            autoSave();
-            refreshView();
         }
     }
 
+    // Dopo una modifica la vista va aggiornata subito: una lista filtrata vecchia
+    // non è più leggibile. Mantiene filtri e ordinamento correnti
     private void refreshView() {
-        List<Movie> movies = collection.getAllMovies();
-        view.showMovies(movies);
+        filterExecutor.cancel();
+        showResults(fetchMovies(buildQuery()));
+    }
+
+    // Applica l'ultima modifica al risultato mostrato; se non si può ricavare (es. ricerca
+    // tollerante) la query viene rieseguita
+    private void followChange() {
+        MovieCollection.CursorUpdate update = shownMovies instanceof MovieCollection.Cursor
+                ? collection.follow((MovieCollection.Cursor) shownMovies)
+                : null;
+        if (update == null) {
+            refreshView();
+            return;
+        }
+
+        MovieCollection.Cursor movies = update.getCursor();
+        shownMovies = movies;
+        int removed = update.getRemovedPosition();
+        int firstInserted = update.getFirstInsertedPosition();
+        int lastInserted = update.getLastInsertedPosition();
+        if (update.isReordered()) {
+            view.showMovies(movies);
+        } else if (removed >= 0 && firstInserted >= 0) {
+            view.movieMoved(removed, firstInserted, movies);
+        } else if (removed >= 0) {
+            view.movieRemoved(removed, movies);
+        } else if (firstInserted >= 0 && firstInserted == lastInserted) {
+            view.movieInserted(firstInserted, movies);
+        } else if (firstInserted >= 0) {
+            view.moviesInserted(firstInserted, lastInserted, movies);
+        } else if (update.getUpdatedPosition() >= 0) {
+            view.movieUpdated(update.getUpdatedPosition(), movies);
+        } else {
+            // Nessuna riga mostrata è cambiata (es. film aggiunto che non passa i filtri)
+            view.replaceMovies(movies);
+        }
+        restartPendingFilter();
+    }
 
-        // Aggiorna lista generi nel filtro
-        List<String> genres = collection.getAllGenres();
-        view.getFilterPanel().updateGenres(genres);
+    // Il risultato calcolato in background precede una modifica: va ricalcolato
+    private void restartPendingFilter() {
+        if (filterExecutor.isPending()) {
+            handleApplyFilters();
+        }
     }
 
     private void handleAddMovie() {
@@ -221,10 +342,15 @@ public class MovieController{
 
             if (filepath != null) {
                 currentFilepath = filepath;
+                // Il file scelto sostituisce la collezione: l'auto-save ancora in caricamento va scartato
+                if (autoSaveLoader != null) {
+                    autoSaveLoader.cancel();
+                    autoSaveLoader = null;
+                    view.showStatus(null);
+                }
                 collection.load(filepath);
 
                 handleClearFilters();
-                refreshView();
 
                 view.showMessage("Collezione caricata con successo!\n" +
                         "Film caricati: " + collection.getMovieCount());
@@ -236,38 +362,81 @@ public class MovieController{
     }
 
     private void handleApplyFilters() {
+        requestFilter(0);
+    }
+
+    // Mentre l'utente scrive si cerca solo dopo una breve pausa
+    private void handleSearchTextChanged() {
+        requestFilter(AppConfiguration.SEARCH_DEBOUNCE_MS);
+    }
+
+    // I criteri si leggono sull'EDT, la query gira in background
+    private void requestFilter(long delayMs) {
+        MovieQuery query = buildQuery();
+        filterExecutor.submit(() -> fetchMovies(query), this::showResults, delayMs);
+    }
+
+    private MovieQuery buildQuery() {
         // Ottieni criteri di ricerca/filtro
         String searchText = view.getFilterPanel().getSearchText();
         String selectedGenre = view.getFilterPanel().getSelectedGenre();
         ViewingStatus selectedStatus = view.getFilterPanel().getSelectedStatusEnum();
         int minRating = view.getFilterPanel().getSelectedMinRating();
+        int minYear = view.getFilterPanel().getSelectedMinYear();
+        int maxYear = view.getFilterPanel().getSelectedMaxYear();
 
-        List<Movie> filteredMovies = collection.getAllMovies();
+        MovieQuery query = new MovieQuery();
+        query.setText(searchText);
 
-        // Applica ricerca per titolo (se presente)
-        if (searchText != null && !searchText.isEmpty()) {
-            filteredMovies = collection.searchByTitleOrAuthor(searchText);
+        // Ricerca tollerante: i migliori risultati per pertinenza
+        if (view.getFilterPanel().isFuzzySearch()) {
+            query.setFuzzy(true);
+            query.setLimit(AppConfiguration.FUZZY_SEARCH_LIMIT);
         }
 
-        // Applica filtro genere (se non "Tutti")
+        // Filtro genere (se non "Tutti")
         if (selectedGenre != null && !selectedGenre.equals("Tutti")) {
-            List<Movie> genreFiltered = collection.filterByGenere(selectedGenre);
-            filteredMovies.retainAll(genreFiltered); // intersezione
+            query.setGenere(selectedGenre);
         }
 
-        // Applica filtro stato (se non "Tutti")
-        if (selectedStatus != null) {
-            List<Movie> statusFiltered = collection.filterByStatus(selectedStatus);
-            filteredMovies.retainAll(statusFiltered); // intersezione
-        }
+        // Filtro stato (se non "Tutti")
+        query.setStatus(selectedStatus);
 
         if (minRating > 0) {
-            List<Movie> ratingFiltered = collection.filterByRating(minRating);
-            filteredMovies.retainAll(ratingFiltered);
+            query.setRatingRange(minRating, minRating);
         }
 
+        // Intervallo anni (0 = estremo non impostato)
+        query.setYearRange(minYear, maxYear);
+
+        query.setSort(sortKey, sortDescending);
+        return query;
+    }
+
+    // Un solo passaggio sulla collezione, partendo dall'indice più selettivo;
+    // i film vengono poi letti a pagine solo per le righe mostrate
+    private List<Movie> fetchMovies(MovieQuery query) {
+        return collection.query(query);
+    }
+
+    private void showResults(List<Movie> movies) {
+        shownMovies = movies;
         // Aggiorna view con risultati filtrati
-        view.showMovies(filteredMovies);
+        view.showMovies(movies);
+    }
+
+    private void handleSort(SortKey key) {
+        if (key == null) {
+            return;
+        }
+        if (key == sortKey) {
+            sortDescending = !sortDescending;
+        } else {
+            sortKey = key;
+            sortDescending = false;
+        }
+        view.showSortIndicator(sortKey, sortDescending);
+        handleApplyFilters();
     }
 
     private void handleClearFilters() {
@@ -283,6 +452,8 @@ public class MovieController{
             strategy = new JSONPersistence();
         } else if (selectedFormat.equals("CSV")) {
             strategy = new CSVPersistence();
+        } else if (selectedFormat.equals("Binario")) {
+            strategy = new BinaryPersistence();
         } else {
             view.showError("Formato non supportato: " + selectedFormat);
             return;
@@ -0,0 +1,483 @@
+package com.parbonetti.gestorefilm.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Vocabolario delle parole di titolo e regista (chiavi di ricerca) -> ordinali delle righe.
+// Ogni parola della query deve trovare corrispondenza; il punteggio premia le parole esatte,
+// poi i prefissi (digitazione in corso), poi gli errori di battitura (distanza di edit limitata).
+// Le parole stanno in un trie, visitato come un automa di Levenshtein per gli errori (vedi typos),
+// e la ricerca si ferma appena i primi "limit" risultati non possono più cambiare.
+final class FuzzyIndex {
+    private static final int EXACT_SCORE = 4;
+    private static final int PREFIX_SCORE = 3;
+    private static final int MAX_QUERY_WORDS = 8;
+    private static final int ROOT = 0;
+
+    // Trie in array paralleli: carattere del nodo, primo figlio, fratello successivo (-1 se manca)
+    // e righe della parola che termina nel nodo (null se nessuna, vuota se la parola è sparita).
+    // I nodi nuovi si aggiungono in fondo; dopo molte modifiche il trie viene ricompattato
+    // (vedi compact) così che i figli di un nodo siano contigui in memoria
+    private char[] nodeChar;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private OrdinalList[] nodeRows;
+    private int nodeCount;
+    private int changesSinceCompact;
+
+    // Stato di una ricerca, riusato: parole della query già soddisfatte e punteggio per riga,
+    // azzerati alla fine solo sulle righe toccate
+    private byte[] matchedWords = new byte[0];
+    private int[] scores = new int[0];
+    private int[] touched = new int[16];
+    // Righe della matrice di Levenshtein, una per livello del trie
+    private int[][] matrix = new int[16][];
+
+    FuzzyIndex() {
+        clear();
+    }
+
+    void add(int row, String titoloKey, String registaKey) {
+        for (String word : tokenize(titoloKey, Integer.MAX_VALUE)) {
+            addWord(row, word);
+        }
+        for (String word : tokenize(registaKey, Integer.MAX_VALUE)) {
+            addWord(row, word);
+        }
+    }
+
+    void remove(int row, String titoloKey, String registaKey) {
+        for (String word : tokenize(titoloKey, Integer.MAX_VALUE)) {
+            removeWord(row, word);
+        }
+        for (String word : tokenize(registaKey, Integer.MAX_VALUE)) {
+            removeWord(row, word);
+        }
+    }
+
+    void clear() {
+        nodeChar = new char[64];
+        firstChild = new int[64];
+        nextSibling = new int[64];
+        nodeRows = new OrdinalList[64];
+        firstChild[ROOT] = -1;
+        nextSibling[ROOT] = -1;
+        nodeCount = 1;
+        changesSinceCompact = 0;
+    }
+
+    // Ordinali delle righe in candidates che corrispondono a tutte le parole della query,
+    // per punteggio decrescente e a parità di punteggio in ordine di inserimento; al più limit
+    int[] search(String queryKey, int rowCount, BitSet candidates, int limit) {
+        List<String> queryWords = tokenize(queryKey, MAX_QUERY_WORDS);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        if (changesSinceCompact > Math.max(1024, nodeCount / 8)) {
+            compact();
+        }
+        if (matchedWords.length < rowCount) {
+            matchedWords = new byte[rowCount];
+            scores = new int[rowCount];
+        }
+
+        int touchedCount = 0;
+        int[] found = new int[16];
+        int foundCount = 0;
+        int maxScore = EXACT_SCORE * queryWords.size();
+        int[] foundByScore = new int[maxScore + 1];
+        // Punteggio più alto raggiunto dalle righe che corrispondono alle parole già viste
+        int bestPartial = 0;
+
+        for (int w = 0; w < queryWords.size(); w++) {
+            boolean lastWord = w == queryWords.size() - 1;
+            String queryWord = queryWords.get(w);
+            int maxDistance = maxDistance(queryWord);
+            List<List<OrdinalList>> typos = null;
+            int partial = 0;
+
+            // Fasce di punteggio dalla più alta: esatta, prefissi, poi distanza 1, 2...
+            for (int score = EXACT_SCORE; score >= PREFIX_SCORE - maxDistance; score--) {
+                List<OrdinalList> tier;
+                if (score == EXACT_SCORE) {
+                    int node = find(queryWord);
+                    tier = node >= 0 && nodeRows[node] != null ? List.of(nodeRows[node]) : List.of();
+                } else if (score == PREFIX_SCORE) {
+                    tier = prefixed(queryWord);
+                } else {
+                    if (typos == null) {
+                        typos = typos(queryWord, maxDistance);
+                    }
+                    tier = typos.get(PREFIX_SCORE - score);
+                }
+
+                // Con una sola parola le righe di una fascia hanno tutte lo stesso punteggio e a parità
+                // vincono le prime inserite: si fondono le liste in ordine e ci si ferma a limit
+                boolean ordered = queryWords.size() == 1;
+                TierRows rows = new TierRows(tier, ordered);
+                for (int row = rows.next(); row >= 0 && !(ordered && foundCount >= limit); row = rows.next()) {
+                    // Il primo match di una riga per questa parola è il migliore (fasce in ordine)
+                    if (matchedWords[row] != w || !candidates.get(row)) {
+                        continue;
+                    }
+                    if (w == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = row;
+                    }
+                    matchedWords[row] = (byte) (w + 1);
+                    scores[row] += score;
+                    partial = Math.max(partial, scores[row]);
+                    if (lastWord) {
+                        if (foundCount == found.length) {
+                            found = Arrays.copyOf(found, foundCount * 2);
+                        }
+                        found[foundCount++] = row;
+                        foundByScore[scores[row]]++;
+                    }
+                }
+                // Le righe delle fasce successive non superano bestPartial + score - 1: se ce ne sono
+                // già limit con un punteggio più alto, i primi risultati non possono più cambiare
+                if (lastWord && countAbove(foundByScore, bestPartial + score - 1) >= limit) {
+                    break;
+                }
+            }
+            bestPartial = partial;
+        }
+
+        // Punteggi piccoli e limitati: ordinamento per bucket
+        int[] bucketStart = new int[maxScore + 2];
+        for (int i = 0; i < foundCount; i++) {
+            bucketStart[maxScore - scores[found[i]] + 1]++;
+        }
+        for (int b = 1; b < bucketStart.length; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        int[] ranked = new int[foundCount];
+        int[] next = Arrays.copyOf(bucketStart, bucketStart.length);
+        for (int i = 0; i < foundCount; i++) {
+            ranked[next[maxScore - scores[found[i]]]++] = found[i];
+        }
+        for (int b = 0; b + 1 < bucketStart.length && bucketStart[b] < limit; b++) {
+            Arrays.sort(ranked, bucketStart[b], bucketStart[b + 1]);
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            matchedWords[touched[i]] = 0;
+            scores[touched[i]] = 0;
+        }
+        return foundCount > limit ? Arrays.copyOf(ranked, limit) : ranked;
+    }
+
+    // Righe delle liste di una fascia: lista per lista, oppure in ordine crescente fondendo le liste
+    // (già ordinate) con un heap sulla riga corrente di ciascuna
+    private static final class TierRows {
+        private final List<OrdinalList> lists;
+        private final int[] positions;
+        private final int[] heap;
+        private int heapSize;
+        private int list;
+        private int position;
+
+        TierRows(List<OrdinalList> lists, boolean ordered) {
+            this.lists = lists;
+            if (!ordered || lists.size() < 2) {
+                this.positions = null;
+                this.heap = null;
+                return;
+            }
+            this.positions = new int[lists.size()];
+            this.heap = new int[lists.size()];
+            for (int i = 0; i < lists.size(); i++) {
+                if (!lists.get(i).isEmpty()) {
+                    heap[heapSize++] = i;
+                }
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        // Riga successiva, -1 alla fine
+        int next() {
+            if (heap == null) {
+                while (list < lists.size() && position == lists.get(list).size()) {
+                    list++;
+                    position = 0;
+                }
+                return list < lists.size() ? lists.get(list).get(position++) : -1;
+            }
+            if (heapSize == 0) {
+                return -1;
+            }
+            int top = heap[0];
+            int row = lists.get(top).get(positions[top]++);
+            if (positions[top] == lists.get(top).size()) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(0);
+            return row;
+        }
+
+        private int head(int heapIndex) {
+            int i = heap[heapIndex];
+            return lists.get(i).get(positions[i]);
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                if (left < heapSize && head(left) < head(smallest)) {
+                    smallest = left;
+                }
+                if (left + 1 < heapSize && head(left + 1) < head(smallest)) {
+                    smallest = left + 1;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                int swap = heap[i];
+                heap[i] = heap[smallest];
+                heap[smallest] = swap;
+                i = smallest;
+            }
+        }
+    }
+
+    private static int countAbove(int[] foundByScore, int score) {
+        int count = 0;
+        for (int s = Math.max(score + 1, 0); s < foundByScore.length; s++) {
+            count += foundByScore[s];
+        }
+        return count;
+    }
+
+    // Parole che iniziano con queryWord, esclusa queryWord stessa
+    private List<OrdinalList> prefixed(String queryWord) {
+        List<OrdinalList> result = new ArrayList<>();
+        int node = find(queryWord);
+        if (node >= 0) {
+            collectSubtree(node, result);
+        }
+        return result;
+    }
+
+    private void collectSubtree(int node, List<OrdinalList> result) {
+        for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+            if (nodeRows[child] != null) {
+                result.add(nodeRows[child]);
+            }
+            collectSubtree(child, result);
+        }
+    }
+
+    // Parole a distanza di edit 1..maxDistance dalla query, raggruppate per distanza (escluse quelle
+    // che la hanno come prefisso, già contate). Si scende nel trie calcolando una riga della matrice
+    // di Levenshtein per livello: quando un'intera riga supera maxDistance nessuna parola sotto quel
+    // nodo può rientrare e il ramo si scarta. Il costo dipende da quante parole sono vicine alla
+    // query, non dalla dimensione del vocabolario
+    private List<List<OrdinalList>> typos(String queryWord, int maxDistance) {
+        List<List<OrdinalList>> byDistance = new ArrayList<>();
+        for (int d = 0; d <= maxDistance; d++) {
+            byDistance.add(new ArrayList<>());
+        }
+        int columns = queryWord.length() + 1;
+        if (matrix[0] == null || matrix[0].length < columns) {
+            for (int i = 0; i < matrix.length; i++) {
+                matrix[i] = new int[columns];
+            }
+        }
+        for (int j = 0; j < columns; j++) {
+            matrix[0][j] = j;
+        }
+        collectTypos(ROOT, 0, 0, queryWord, maxDistance, byDistance);
+        return byDistance;
+    }
+
+    // matched: quanti caratteri iniziali del percorso coincidono con la query
+    private void collectTypos(int node, int depth, int matched, String queryWord, int maxDistance,
+                              List<List<OrdinalList>> byDistance) {
+        for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+            char c = nodeChar[child];
+            if (nextRow(queryWord, c, depth + 1) > maxDistance) {
+                continue;
+            }
+            int childMatched = matched == depth && depth < queryWord.length() && queryWord.charAt(depth) == c
+                    ? depth + 1
+                    : matched;
+            if (childMatched == queryWord.length()) {
+                continue; // tutte le parole sotto iniziano con la query
+            }
+            int distance = matrix[depth + 1][queryWord.length()];
+            if (nodeRows[child] != null && !nodeRows[child].isEmpty() && distance <= maxDistance) {
+                byDistance.get(distance).add(nodeRows[child]);
+            }
+            collectTypos(child, depth + 1, childMatched, queryWord, maxDistance, byDistance);
+        }
+    }
+
+    // Calcola la riga "depth" dalla precedente; ritorna il suo minimo
+    private int nextRow(String queryWord, char c, int depth) {
+        if (depth >= matrix.length) {
+            int[][] grown = Arrays.copyOf(matrix, depth * 2);
+            for (int i = matrix.length; i < grown.length; i++) {
+                grown[i] = new int[matrix[0].length];
+            }
+            matrix = grown;
+        }
+        int[] previous = matrix[depth - 1];
+        int[] current = matrix[depth];
+        current[0] = depth;
+        int min = depth;
+        for (int j = 1; j <= queryWord.length(); j++) {
+            int substitution = previous[j - 1] + (c == queryWord.charAt(j - 1) ? 0 : 1);
+            current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            min = Math.min(min, current[j]);
+        }
+        return min;
+    }
+
+    // Nodo della parola, -1 se il trie non la contiene
+    private int find(String word) {
+        int node = ROOT;
+        for (int i = 0; i < word.length() && node >= 0; i++) {
+            node = child(node, word.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char c) {
+        int child = firstChild[node];
+        while (child >= 0 && nodeChar[child] != c) {
+            child = nextSibling[child];
+        }
+        return child;
+    }
+
+    // Ricostruisce gli array visitando il trie in ampiezza: i figli di ogni nodo finiscono contigui
+    // e i rami rimasti senza parole (tutte rimosse) vengono eliminati
+    private void compact() {
+        int[] order = new int[nodeCount];
+        int[] parent = new int[nodeCount];
+        int count = 1;
+        for (int i = 0; i < count; i++) {
+            for (int child = firstChild[order[i]]; child >= 0; child = nextSibling[child]) {
+                parent[child] = order[i];
+                order[count++] = child;
+            }
+        }
+        boolean[] live = new boolean[nodeCount];
+        for (int i = count - 1; i > 0; i--) {
+            int node = order[i];
+            if (live[node] || (nodeRows[node] != null && !nodeRows[node].isEmpty())) {
+                live[node] = true;
+                live[parent[node]] = true;
+            }
+        }
+
+        char[] newChar = new char[count + 64];
+        int[] newFirst = new int[newChar.length];
+        int[] newNext = new int[newChar.length];
+        OrdinalList[] newRows = new OrdinalList[newChar.length];
+        int[] newId = parent; // riusato: i genitori non servono più
+        newId[ROOT] = ROOT;
+        newFirst[ROOT] = -1;
+        newNext[ROOT] = -1;
+        int newCount = 1;
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            if (node != ROOT && !live[node]) {
+                continue;
+            }
+            int previous = -1;
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                if (!live[child]) {
+                    continue;
+                }
+                int id = newCount++;
+                newChar[id] = nodeChar[child];
+                newRows[id] = nodeRows[child] != null && !nodeRows[child].isEmpty() ? nodeRows[child] : null;
+                newFirst[id] = -1;
+                newNext[id] = -1;
+                if (previous < 0) {
+                    newFirst[newId[node]] = id;
+                } else {
+                    newNext[previous] = id;
+                }
+                previous = id;
+                newId[child] = id;
+            }
+        }
+        nodeChar = newChar;
+        firstChild = newFirst;
+        nextSibling = newNext;
+        nodeRows = newRows;
+        nodeCount = newCount;
+        changesSinceCompact = 0;
+    }
+
+    private static int maxDistance(String word) {
+        if (word.length() <= 3) {
+            return 0;
+        }
+        return word.length() <= 6 ? 1 : 2;
+    }
+
+    private void addWord(int row, String word) {
+        int node = ROOT;
+        for (int i = 0; i < word.length(); i++) {
+            int next = child(node, word.charAt(i));
+            node = next >= 0 ? next : newNode(node, word.charAt(i));
+        }
+        if (nodeRows[node] == null) {
+            nodeRows[node] = new OrdinalList();
+        }
+        nodeRows[node].add(row);
+    }
+
+    private void removeWord(int row, String word) {
+        int node = find(word);
+        if (node >= 0 && nodeRows[node] != null) {
+            nodeRows[node].remove(row);
+            if (nodeRows[node].isEmpty()) {
+                changesSinceCompact++;
+            }
+        }
+    }
+
+    private int newNode(int parent, char c) {
+        if (nodeCount == nodeChar.length) {
+            int capacity = nodeCount * 2;
+            nodeChar = Arrays.copyOf(nodeChar, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            nodeRows = Arrays.copyOf(nodeRows, capacity);
+        }
+        int node = nodeCount++;
+        nodeChar[node] = c;
+        firstChild[node] = -1;
+        nextSibling[node] = firstChild[parent];
+        firstChild[parent] = node;
+        changesSinceCompact++;
+        return node;
+    }
+
+    private static List<String> tokenize(String text, int maxWords) {
+        List<String> result = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length() && result.size() < maxWords; i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,7 @@
+package com.parbonetti.gestorefilm.model;
+
+// Notificato da MovieCollection quando un genere compare (primo film) o scompare (ultimo film)
+public interface GenreListener {
+    void genreAdded(String genre);
+    void genreRemoved(String genre);
+}
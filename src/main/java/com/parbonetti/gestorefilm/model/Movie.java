@@ -13,6 +13,10 @@ public class Movie {
     private int valutazione; // 1-5 stelle
     private ViewingStatus statoVisione;
 
+    // Chiavi di ricerca normalizzate, calcolate alla prima richiesta (transient: non salvate)
+    private transient String titoloKey;
+    private transient String registaKey;
+
     public Movie(String regista, ViewingStatus statoVisione, int valutazione, String genere, int annoUscita, String titolo) {
         this.id = UUID.randomUUID().toString();
         this.regista = regista;
@@ -45,6 +49,7 @@ public class Movie {
 
     public void setTitolo(String titolo) {
         this.titolo = titolo;
+        this.titoloKey = null;
     }
 
     public String getRegista() {
@@ -53,6 +58,21 @@ public class Movie {
 
     public void setRegista(String regista) {
         this.regista = regista;
+        this.registaKey = null;
+    }
+
+    String getTitoloKey() {
+        if (titoloKey == null) {
+            titoloKey = SearchKeys.normalize(titolo);
+        }
+        return titoloKey;
+    }
+
+    String getRegistaKey() {
+        if (registaKey == null) {
+            registaKey = SearchKeys.normalize(regista);
+        }
+        return registaKey;
     }
 
     public int getAnnoUscita() {
@@ -174,6 +194,8 @@ public class Movie {
         this.genere = memento.genere;
         this.valutazione = memento.valutazione;
         this.statoVisione = memento.statoVisione;
+        this.titoloKey = null;
+        this.registaKey = null;
     }
 
 }
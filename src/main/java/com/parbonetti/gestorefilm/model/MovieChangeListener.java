@@ -0,0 +1,13 @@
+package com.parbonetti.gestorefilm.model;
+
+// Notificato da MovieCollection dopo ogni modifica. position è l'indice del film
+// nell'ordine di getAllMovies (per la rimozione, quello che aveva prima)
+public interface MovieChangeListener {
+    void movieInserted(int position, Movie movie);
+    // Blocco aggiunto in coda (caricamento progressivo): posizioni da fromPosition a toPosition incluse
+    void moviesInserted(int fromPosition, int toPosition);
+    void movieUpdated(int position, Movie movie);
+    void movieRemoved(int position, Movie movie);
+    // Contenuto sostituito per intero (caricamento da file)
+    void collectionReloaded();
+}
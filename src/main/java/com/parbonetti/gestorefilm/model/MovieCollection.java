@@ -1,17 +1,110 @@
 package com.parbonetti.gestorefilm.model;
 
+import com.parbonetti.gestorefilm.AppConfiguration;
 import com.parbonetti.gestorefilm.persistence.PersistenceStrategy;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
+// I metodi pubblici sono synchronized: le modifiche arrivano dall'EDT,
+// le query dei filtri da un thread in background. query() prende il lock a brevi tratti
+// (vedi runQuery), così l'EDT non aspetta la fine di una query per leggere le pagine di un Cursor
 public class MovieCollection {
     private static MovieCollection INSTANCE = null;
 
-    private List<Movie> movies;
+    // Numero minimo di righe libere prima di compattare
+    private static final int COMPACTION_THRESHOLD = 1024;
+    // Film materializzati per pagina di un Cursor e pagine tenute in memoria
+    private static final int PAGE_SIZE = 256;
+    private static final int MAX_CACHED_PAGES = 64;
+    // Righe verificate per ogni presa del lock durante una query, e tentativi prima di eseguirla
+    // tutta sotto il lock quando le modifiche continuano a interromperla
+    private static final int QUERY_SLICE = 4096;
+    private static final int MAX_QUERY_ATTEMPTS = 3;
+
+    // Righe in ordine di inserimento: l'indice è l'ordinale del film, null = film rimosso.
+    // Dopo il caricamento di uno snapshot binario le righe restano nel file mappato (vedi MovieRows)
+    private final MovieRows rows;
+    // Indice primario id -> ordinale, mantenuto insieme alle righe
+    private final Map<String, Integer> rowById;
+    // Incrementato ad ogni modifica, invalida i risultati di query() già restituiti.
+    // Volatile: i Cursor lo controllano senza prendere il lock
+    private volatile int version;
+    // Ultima modifica notificata ai listener, per ricavarne i nuovi risultati (vedi follow):
+    // righe coinvolte e posizione in getAllMovies
+    private Change lastChange;
+    private int lastChangeFirstRow;
+    private int lastChangeLastRow;
+    private int lastChangePosition;
+
+    // Indici secondari: per ogni valore una bitmap di ordinali (una lista ordinata per i
+    // valori sparsi come gli anni), aggiornata ad ogni modifica.
+    // Le colonne ricordano i valori indicizzati, perché i film vengono modificati
+    // sul posto (form di modifica, restoreFromMemento) prima di chiamare updateMovie.
+    private final MovieColumns columns;
+    private final BitSet liveRows;
+    private final RowRank liveRank;                // righe vive per blocco, per position()
+    private final Map<String, BitSet> rowsByGenre; // chiave in minuscolo
+    private final Map<ViewingStatus, BitSet> rowsByStatus;
+    private final BitSet[] rowsByRating;            // posizione = valutazione - MIN_RATING
+    private final OrdinalList[] rowsByYear;         // posizione = anno - MIN_YEAR
+    private final TrigramIndex trigrams;           // chiavi di ricerca di titolo e regista
+    private final FuzzyIndex words;                // parole di titolo e regista, per la ricerca tollerante
+
+    // Generi presenti (ordinati) -> numero di film; i listener sono avvisati a modifica conclusa
+    // solo quando un genere compare o scompare
+    private final TreeMap<String, Integer> genreCounts;
+    private final Map<String, Boolean> touchedGenres; // genere -> presente prima della modifica
+    private final List<GenreListener> genreListeners;
+    private final List<MovieChangeListener> changeListeners;
+
+    // Viste ordinate (alberi bilanciati di ordinali), create alla prima richiesta di un
+    // ordinamento e poi aggiornate ad ogni modifica invece di riordinare tutto
+    private final Map<SortKey, TreeSet<Integer>> sortedRowsByKey;
+    private final TextMatchCache textCache;
+
     private PersistenceStrategy persistenceStrategy;
     private MovieCollection() {
-        this.movies = new ArrayList<>();
+        this.rows = new MovieRows(AppConfiguration.SNAPSHOT_CACHE_SIZE);
+        this.rowById = new HashMap<>();
+        this.columns = new MovieColumns();
+        this.liveRows = new BitSet();
+        this.liveRank = new RowRank();
+        this.rowsByGenre = new HashMap<>();
+        this.rowsByStatus = new EnumMap<>(ViewingStatus.class);
+        for (ViewingStatus status : ViewingStatus.values()) {
+            rowsByStatus.put(status, new BitSet());
+        }
+        this.rowsByRating = new BitSet[AppConfiguration.MAX_RATING - AppConfiguration.MIN_RATING + 1];
+        for (int i = 0; i < rowsByRating.length; i++) {
+            rowsByRating[i] = new BitSet();
+        }
+        this.rowsByYear = new OrdinalList[AppConfiguration.MAX_YEAR - AppConfiguration.MIN_YEAR + 1];
+        for (int i = 0; i < rowsByYear.length; i++) {
+            rowsByYear[i] = new OrdinalList();
+        }
+        this.trigrams = new TrigramIndex();
+        this.words = new FuzzyIndex();
+        this.genreCounts = new TreeMap<>();
+        this.touchedGenres = new LinkedHashMap<>();
+        this.genreListeners = new ArrayList<>();
+        this.changeListeners = new ArrayList<>();
+        this.sortedRowsByKey = new EnumMap<>(SortKey.class);
+        this.textCache = new TextMatchCache();
     }
 
     public static synchronized MovieCollection getInstance() {
@@ -26,101 +119,1209 @@ public class MovieCollection {
     }
 
 
-    public boolean addMovie(Movie movie) {
-        if (movie == null) {
+    public synchronized boolean addMovie(Movie movie) {
+        if (!insertRow(movie, -1)) {
             return false;
         }
-        return movies.add(movie);
+        version++;
+        fireGenreChanges();
+        // Le nuove righe vanno sempre in coda
+        int position = rowById.size() - 1;
+        recordChange(Change.INSERTED, rows.size() - 1, rows.size() - 1, position);
+        for (MovieChangeListener listener : new ArrayList<>(changeListeners)) {
+            listener.movieInserted(position, movie);
+        }
+        return true;
+    }
+
+    // Aggiunta in blocco, es. durante il caricamento progressivo: un solo evento per tutto il blocco.
+    // Film null o con id già presente vengono saltati; ritorna quanti sono stati aggiunti
+    public synchronized int addMovies(List<Movie> movies) {
+        int firstPosition = rowById.size();
+        for (Movie movie : movies) {
+            insertRow(movie, -1);
+        }
+        int added = rowById.size() - firstPosition;
+        if (added == 0) {
+            return 0;
+        }
+        version++;
+        fireGenreChanges();
+        recordChange(Change.INSERTED, rows.size() - added, rows.size() - 1, firstPosition);
+        for (MovieChangeListener listener : new ArrayList<>(changeListeners)) {
+            listener.moviesInserted(firstPosition, firstPosition + added - 1);
+        }
+        return added;
     }
 
-    public boolean removeMovie(String id) {
-        return movies.removeIf(m -> m.getId().equals(id));
+    public synchronized boolean removeMovie(String id) {
+        Integer row = rowById.remove(id);
+        if (row == null) {
+            return false;
+        }
+        int position = position(row);
+        Movie movie = rows.get(row);
+        unindex(row, true);
+        rows.remove(row);
+        version++;
+        recordChange(Change.REMOVED, row, row, position);
+        compactIfNeeded();
+        fireGenreChanges();
+        for (MovieChangeListener listener : new ArrayList<>(changeListeners)) {
+            listener.movieRemoved(position, movie);
+        }
+        return true;
     }
 
-    public Movie getMovie(String id) {
-        return movies.stream().filter(m -> m.getId().equals(id)).findFirst().orElse(null);
+    public synchronized Movie getMovie(String id) {
+        Integer row = rowById.get(id);
+        return row != null ? rows.get(row) : null;
     }
 
-    public List<Movie> getAllMovies() {
-        return new ArrayList<>(movies);
+    public synchronized List<Movie> getAllMovies() {
+        List<Movie> result = new ArrayList<>(rowById.size());
+        for (int row = 0; row < rows.size(); row++) {
+            Movie movie = rows.get(row);
+            if (movie != null) {
+                result.add(movie);
+            }
+        }
+        return result;
     }
 
-    public boolean updateMovie(Movie uMovie) {
+    public synchronized boolean updateMovie(Movie uMovie) {
         if (uMovie == null) {
             return false;
         }
 
-        for (int i = 0; i < movies.size(); i++) {
-            if (movies.get(i).getId().equals(uMovie.getId())) {
-                movies.set(i, uMovie);
-                return true;
-            }
+        Integer row = rowById.get(uMovie.getId());
+        if (row == null) {
+            return false;
+        }
+        // Gli indici del testo hanno liste lunghe per le parole comuni: se titolo e regista
+        // non cambiano (es. nuova valutazione) restano come sono
+        boolean textChanged = !columns.titoloKey(row).equals(uMovie.getTitoloKey())
+                || !columns.registaKey(row).equals(uMovie.getRegistaKey());
+        unindex(row, textChanged);
+        rows.set(row, uMovie);
+        index(row, uMovie, textChanged);
+        version++;
+        fireGenreChanges();
+        int position = position(row);
+        recordChange(Change.UPDATED, row, row, position);
+        for (MovieChangeListener listener : new ArrayList<>(changeListeners)) {
+            listener.movieUpdated(position, uMovie);
         }
-        return false;
+        return true;
     }
 
-    public List<Movie> searchByTitleOrAuthor(String query){
+    public synchronized List<Movie> searchByTitleOrAuthor(String query){
         if (query == null || query.trim().isEmpty()) {
             return getAllMovies();
         }
 
-        String lowerQuery = query.toLowerCase();
-        return movies.stream()
-                .filter(m -> m.getTitolo().toLowerCase().contains(lowerQuery) ||
-                        m.getRegista().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
+        return materialize(textMatches(SearchKeys.normalize(query)));
+    }
+
+    // Il risultato è un Cursor sulle righe selezionate: i Movie vengono letti a pagine solo quando
+    // richiesti (es. righe visibili in tabella). Resta valido fino alla modifica successiva.
+    // Una query vuota e senza limite restituisce tutta la collezione
+    public Cursor query(MovieQuery query) {
+        if (query == null || (query.isEmpty() && query.getSortKey() == null && query.getLimit() <= 0)) {
+            synchronized (this) {
+                return new Cursor(liveRows, rowById.size(), null);
+            }
+        }
+
+        QueryPlan plan = new QueryPlan(query);
+        for (int attempt = 1; attempt < MAX_QUERY_ATTEMPTS; attempt++) {
+            Cursor cursor = runQuery(plan);
+            if (cursor != null) {
+                return cursor;
+            }
+        }
+        // Le modifiche continuano a interromperla: la si esegue tenendo il lock (rientrante)
+        synchronized (this) {
+            return runQuery(plan);
+        }
     }
 
-    public List<Movie> filterByGenere(String genere){
+    // Sotto il lock solo le operazioni brevi sugli indici; la verifica del testo e la lettura
+    // dei valori da ordinare procedono a blocchi di QUERY_SLICE righe, riprendendo il lock per
+    // ognuno. Se nel frattempo la collezione cambia ritorna null e la query va ripetuta
+    private Cursor runQuery(QueryPlan plan) {
+        int expectedVersion;
+        BitSet textRows = null;
+        BitSet textCandidates = null;
+        synchronized (this) {
+            expectedVersion = version;
+            if (plan.minRatingSlot > plan.maxRatingSlot || plan.minYear > plan.maxYear) {
+                return new Cursor(new int[0], 0, plan);
+            }
+            if (plan.fuzzy) {
+                // L'indice delle parole si ferma ai primi plan.limit: resta sotto il lock
+                return rankedQuery(selectRows(plan, null), plan);
+            }
+            if (plan.textKey != null) {
+                textRows = textCache.get(plan.textKey, version);
+                if (textRows == null) {
+                    textCandidates = textCandidates(plan.textKey);
+                }
+            }
+        }
+
+        if (textCandidates != null) {
+            textRows = verifyText(plan.textKey, textCandidates, expectedVersion);
+            if (textRows == null) {
+                return null;
+            }
+        }
+
+        BitSet candidates;
+        synchronized (this) {
+            if (version != expectedVersion) {
+                return null;
+            }
+            candidates = selectRows(plan, textRows);
+            if (plan.sortKey == null) {
+                // In ordine di inserimento basta la bitmap: le pagine si ricavano scorrendola
+                return new Cursor(candidates, Math.min(candidates.cardinality(), plan.limit), plan);
+            }
+        }
+        return sortedQuery(candidates, plan, expectedVersion);
+    }
+
+    // Risultato della stessa query di previous dopo l'ultima modifica notificata ai listener,
+    // ricavato dal precedente: solo le righe modificate vengono verificate sui criteri.
+    // Va chiamato dal listener, prima di altre modifiche; null se non si può (ricerca tollerante,
+    // limite sui risultati, caricamento da file...) e la query va rieseguita
+    public synchronized CursorUpdate follow(Cursor previous) {
+        if (previous == null || lastChange == null || previous.expectedVersion != version - 1) {
+            return null;
+        }
+        QueryPlan plan = previous.plan;
+        if (plan == null) {
+            // Tutta la collezione: le posizioni sono quelle degli eventi
+            Cursor cursor = new Cursor(liveRows, rowById.size(), null);
+            switch (lastChange) {
+                case INSERTED:
+                    return new CursorUpdate(cursor, -1, lastChangePosition,
+                            lastChangePosition + lastChangeLastRow - lastChangeFirstRow, -1);
+                case UPDATED:
+                    return new CursorUpdate(cursor, -1, -1, -1, lastChangePosition);
+                default:
+                    return new CursorUpdate(cursor, lastChangePosition, -1, -1, -1);
+            }
+        }
+        if (plan.fuzzy || plan.limit != Integer.MAX_VALUE) {
+            return null;
+        }
+
+        // Il vecchio risultato non è più leggibile: il nuovo ne riusa gli ordinali
+        int[] ordinals = previous.ordinals;
+        int size = previous.size;
+        if (ordinals == null) {
+            ordinals = new int[size + 16];
+            int i = 0;
+            for (int row = previous.bitmap.nextSetBit(0); i < size; row = previous.bitmap.nextSetBit(row + 1)) {
+                ordinals[i++] = row;
+            }
+        }
+        Comparator<Integer> order = null;
+        if (plan.sortKey != null) {
+            order = rowComparator(plan.sortKey);
+            if (plan.descending) {
+                order = order.reversed();
+            }
+        }
+
+        if (lastChange == Change.INSERTED) {
+            int from = size;
+            for (int row = lastChangeFirstRow; row <= lastChangeLastRow; row++) {
+                if (matches(row, plan)) {
+                    if (size == ordinals.length) {
+                        ordinals = Arrays.copyOf(ordinals, size + size / 2 + 16);
+                    }
+                    ordinals[size++] = row;
+                }
+            }
+            if (size == from) {
+                return new CursorUpdate(new Cursor(ordinals, size, plan), -1, -1, -1, -1);
+            }
+            if (order == null) {
+                // In ordine di inserimento le nuove righe vanno in coda
+                return new CursorUpdate(new Cursor(ordinals, size, plan), -1, from, size - 1, -1);
+            }
+            if (size - from == 1) {
+                int added = ordinals[from];
+                int position = insertionPoint(ordinals, from, added, order);
+                System.arraycopy(ordinals, position, ordinals, position + 1, from - position);
+                ordinals[position] = added;
+                return new CursorUpdate(new Cursor(ordinals, size, plan), -1, position, position, -1);
+            }
+            // Un blocco (es. caricamento) in una vista ordinata: si fonde con il resto
+            int[] merged = mergeSorted(ordinals, from, size, order);
+            return new CursorUpdate(new Cursor(merged, size, plan), -1, -1, -1, -1, true);
+        }
+
+        int row = lastChangeFirstRow;
+        int oldPosition;
+        if (order == null) {
+            oldPosition = Arrays.binarySearch(ordinals, 0, size, row);
+        } else if (lastChange == Change.REMOVED) {
+            // Le colonne di una riga rimossa restano quelle indicizzate: vale ancora l'ordinamento
+            oldPosition = insertionPoint(ordinals, size, row, order);
+            if (oldPosition == size || ordinals[oldPosition] != row) {
+                oldPosition = -1;
+            }
+        } else {
+            // Le colonne della riga modificata sono già cambiate: la si cerca per ordinale
+            oldPosition = -1;
+            for (int i = 0; i < size && oldPosition < 0; i++) {
+                if (ordinals[i] == row) {
+                    oldPosition = i;
+                }
+            }
+        }
+        if (oldPosition < 0) {
+            oldPosition = -1;
+        }
+        boolean isIn = lastChange == Change.UPDATED && matches(row, plan);
+
+        if (oldPosition >= 0) {
+            System.arraycopy(ordinals, oldPosition + 1, ordinals, oldPosition, size - oldPosition - 1);
+            size--;
+        }
+        int newPosition = -1;
+        if (isIn) {
+            newPosition = order == null
+                    ? -Arrays.binarySearch(ordinals, 0, size, row) - 1
+                    : insertionPoint(ordinals, size, row, order);
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size + size / 2 + 16);
+            }
+            System.arraycopy(ordinals, newPosition, ordinals, newPosition + 1, size - newPosition);
+            ordinals[newPosition] = row;
+            size++;
+        }
+
+        Cursor cursor = new Cursor(ordinals, size, plan);
+        if (oldPosition >= 0 && oldPosition == newPosition) {
+            return new CursorUpdate(cursor, -1, -1, -1, newPosition);
+        }
+        return new CursorUpdate(cursor, oldPosition, newPosition, newPosition, -1);
+    }
+
+    // Stessi criteri di selectRows, verificati su una sola riga tramite le colonne
+    private boolean matches(int row, QueryPlan plan) {
+        if (!liveRows.get(row)) {
+            return false;
+        }
+        if (plan.genreKey != null && !plan.genreKey.equals(columns.genreKey(row))) {
+            return false;
+        }
+        if (plan.status != null && plan.status != columns.status(row)) {
+            return false;
+        }
+        if (plan.ratingRange) {
+            int ratingSlot = ratingSlot(columns.rating(row));
+            if (ratingSlot < 0 || ratingSlot < plan.minRatingSlot || ratingSlot > plan.maxRatingSlot) {
+                return false;
+            }
+        }
+        if (plan.yearRange) {
+            int year = columns.year(row);
+            if (yearSlot(year) < 0 || year < plan.minYear || year > plan.maxYear) {
+                return false;
+            }
+        }
+        return plan.textKey == null || matchesText(row, plan.textKey);
+    }
+
+    // Prima posizione in ordinals[0, size) che non precede row nell'ordinamento
+    private static int insertionPoint(int[] ordinals, int size, int row, Comparator<Integer> order) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (order.compare(ordinals[middle], row) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // ordinals[0, from) è già ordinato, [from, size) sono le righe nuove
+    private static int[] mergeSorted(int[] ordinals, int from, int size, Comparator<Integer> order) {
+        Integer[] added = new Integer[size - from];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = ordinals[from + i];
+        }
+        Arrays.sort(added, order);
+        int[] merged = new int[size + size / 2 + 16];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            if (j == added.length || (i < from && order.compare(ordinals[i], added[j]) <= 0)) {
+                merged[k] = ordinals[i++];
+            } else {
+                merged[k] = added[j++];
+            }
+        }
+        return merged;
+    }
+
+    // Ricerca tollerante agli errori di battitura, primi "limit" risultati per pertinenza
+    public synchronized List<Movie> fuzzySearch(String query, int limit) {
+        MovieQuery fuzzyQuery = new MovieQuery();
+        fuzzyQuery.setText(query);
+        fuzzyQuery.setFuzzy(true);
+        fuzzyQuery.setLimit(limit);
+        return new ArrayList<>(query(fuzzyQuery));
+    }
+
+    // Le righe arrivano già filtrate dalle bitmap degli altri criteri e ordinate per punteggio
+    // dall'indice delle parole, che si ferma ai primi plan.limit
+    private Cursor rankedQuery(BitSet candidates, QueryPlan plan) {
+        int[] ranked = words.search(plan.textKey, rows.size(), candidates, plan.limit);
+        if (plan.sortKey != null) {
+            sortRows(ranked, ranked.length, plan);
+        }
+        return new Cursor(ranked, ranked.length, plan);
+    }
+
+    // Con pochi candidati conviene ordinarli, copiando a blocchi i valori della colonna e
+    // ordinando fuori dal lock; altrimenti si percorre la vista ordinata, anche lei a blocchi
+    private Cursor sortedQuery(BitSet candidates, QueryPlan plan, int expectedVersion) {
+        int candidateCount;
+        TreeSet<Integer> sorted = null;
+        synchronized (this) {
+            if (version != expectedVersion) {
+                return null;
+            }
+            candidateCount = candidates.cardinality();
+            if (candidateCount * 8L >= rowById.size() || plan.limit < candidateCount) {
+                sorted = sortedRows(plan.sortKey);
+            }
+        }
+        int[] matches = new int[Math.min(candidateCount, plan.limit)];
+        int count = 0;
+
+        if (sorted == null) {
+            Object[] values = new Object[candidateCount];
+            int from = 0;
+            while (from >= 0) {
+                synchronized (this) {
+                    if (version != expectedVersion) {
+                        return null;
+                    }
+                    int row = candidates.nextSetBit(from);
+                    for (int i = 0; i < QUERY_SLICE && row >= 0; i++) {
+                        matches[count] = row;
+                        values[count++] = sortValue(row, plan.sortKey);
+                        row = candidates.nextSetBit(row + 1);
+                    }
+                    from = row;
+                }
+            }
+            sortByValues(matches, values, count, plan.descending);
+        } else {
+            Iterator<Integer> iterator = plan.descending ? sorted.descendingIterator() : sorted.iterator();
+            boolean more = true;
+            while (more) {
+                synchronized (this) {
+                    // A versione invariata la vista non è cambiata e l'iteratore resta valido
+                    if (version != expectedVersion) {
+                        return null;
+                    }
+                    for (int i = 0; i < QUERY_SLICE && more; i++) {
+                        more = iterator.hasNext() && count < matches.length;
+                        if (more) {
+                            int row = iterator.next();
+                            if (candidates.get(row)) {
+                                matches[count++] = row;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized (this) {
+            return version == expectedVersion ? new Cursor(matches, count, plan) : null;
+        }
+    }
+
+    public synchronized List<Movie> getSortedMovies(SortKey sortKey, boolean descending) {
+        MovieQuery query = new MovieQuery();
+        query.setSort(sortKey, descending);
+        return new ArrayList<>(query(query));
+    }
+
+    public synchronized List<Movie> filterByGenere(String genere){
         if (genere==null || genere.trim().isEmpty() || genere.equals("Tutti")) return getAllMovies();
-        return movies.stream().filter(m->m.getGenere().equalsIgnoreCase(genere)).collect(Collectors.toList());
+        return materialize(rowsByGenre.get(genreKey(genere)));
     }
 
-    public List<Movie> filterByStatus(ViewingStatus status){
+    public synchronized List<Movie> filterByStatus(ViewingStatus status){
         if (status==null) return getAllMovies();
-        return movies.stream().filter(m->m.getStatoVisione() == status).collect(Collectors.toList());
+        return materialize(rowsByStatus.get(status));
+    }
+
+    public synchronized List<Movie> filterByRating(int minRating) {
+        if (minRating < AppConfiguration.MIN_RATING || minRating > AppConfiguration.MAX_RATING) {
+            return new ArrayList<>();
+        }
+        return materialize(rowsByRating[minRating - AppConfiguration.MIN_RATING]);
+    }
+
+    public synchronized List<Movie> filterByYearRange(int minYear, int maxYear) {
+        if (minYear > maxYear) {
+            return new ArrayList<>();
+        }
+        return materialize(yearRange(minYear, maxYear));
+    }
+
+    public synchronized int getMovieCount() {
+        return rowById.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return rowById.isEmpty();
     }
 
-    public List<Movie> filterByRating(int minRating) {
-        return movies.stream()
-                .filter(m -> m.getValutazione() == minRating)
-                .collect(Collectors.toList());
+    public synchronized List<String> getAllGenres() {
+        return new ArrayList<>(genreCounts.keySet());
     }
 
-    public int getMovieCount() {
-        return movies.size();
+    public synchronized void addGenreListener(GenreListener listener) {
+        genreListeners.add(listener);
     }
 
-    public boolean isEmpty() {
-        return movies.isEmpty();
+    public synchronized void removeGenreListener(GenreListener listener) {
+        genreListeners.remove(listener);
     }
 
-    public List<String> getAllGenres() {
-        return movies.stream()
-                .map(Movie::getGenere)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+    public synchronized void addChangeListener(MovieChangeListener listener) {
+        changeListeners.add(listener);
     }
 
-    public void setPersistenceStrategy(PersistenceStrategy strategy) {
+    public synchronized void removeChangeListener(MovieChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    public synchronized void setPersistenceStrategy(PersistenceStrategy strategy) {
         this.persistenceStrategy = strategy;
     }
 
-    public void save(String filepath) {
+    public synchronized void save(String filepath) {
         if (persistenceStrategy == null) {
             throw new IllegalStateException("Persistence strategy not set");
         }
-        persistenceStrategy.save(movies, filepath);
+        persistenceStrategy.save(getAllMovies(), filepath);
     }
 
-    public void load(String filepath) {
+    public synchronized void load(String filepath) {
         if (persistenceStrategy == null) {
             throw new IllegalStateException("Persistence strategy not set");
         }
-        List<Movie> loadedMovies = persistenceStrategy.load(filepath);
-        if (loadedMovies != null) {
-            this.movies = loadedMovies;
+        // Se il formato lo permette i film restano nel file e vengono letti quando servono.
+        // open() e load() falliscono prima di toccare la collezione, che resta com'era
+        MovieSource source = persistenceStrategy.open(filepath);
+        if (source != null) {
+            attach(source);
+        } else {
+            List<Movie> loadedMovies = persistenceStrategy.load(filepath);
+            if (loadedMovies == null) {
+                return;
+            }
+            rebuild(loadedMovies);
+        }
+        fireGenreChanges();
+        lastChange = null;
+        for (MovieChangeListener listener : new ArrayList<>(changeListeners)) {
+            listener.collectionReloaded();
+        }
+    }
+
+    // Indice nell'ordine di getAllMovies: righe vive che precedono row.
+    // I blocchi interi li conta liveRank, quelle del blocco di row si scorrono
+    private int position(int row) {
+        int position = liveRank.countBefore(row);
+        for (int r = liveRows.nextSetBit(RowRank.blockStart(row)); r >= 0 && r < row; r = liveRows.nextSetBit(r + 1)) {
+            position++;
+        }
+        return position;
+    }
+
+    // Le righe rimosse restano come buchi finché non superano quelle occupate.
+    // Le righe ancora nello snapshot restano tali
+    private void compactIfNeeded() {
+        int freeRows = rows.size() - rowById.size();
+        if (freeRows >= COMPACTION_THRESHOLD && freeRows > rowById.size()) {
+            List<Movie> movies = new ArrayList<>(rowById.size());
+            int[] records = new int[rowById.size()];
+            for (int row = 0; row < rows.size(); row++) {
+                Movie movie = rows.get(row);
+                if (movie != null) {
+                    records[movies.size()] = rows.record(row);
+                    movies.add(movie);
+                }
+            }
+            reset(rows.source());
+            for (int i = 0; i < movies.size(); i++) {
+                insertRow(movies.get(i), records[i]);
+            }
+        }
+    }
+
+    private void recordChange(Change change, int firstRow, int lastRow, int position) {
+        lastChange = change;
+        lastChangeFirstRow = firstRow;
+        lastChangeLastRow = lastRow;
+        lastChangePosition = position;
+    }
+
+    private void rebuild(List<Movie> movies) {
+        reset(null);
+        for (Movie movie : movies) {
+            insertRow(movie, -1);
+        }
+    }
+
+    // Ogni record viene decodificato una volta per costruire gli indici, quindi tempo di caricamento
+    // e memoria degli indici crescono con il catalogo; solo i Movie non restano in memoria.
+    // La sorgente ha già verificato i record: movie() non fallisce a collezione svuotata
+    private void attach(MovieSource source) {
+        reset(source);
+        for (int record = 0; record < source.size(); record++) {
+            insertRow(source.movie(record), record);
+        }
+    }
+
+    private void reset(MovieSource source) {
+        for (String genre : genreCounts.keySet()) {
+            touchedGenres.putIfAbsent(genre, true);
+        }
+        genreCounts.clear();
+        rows.clear(source);
+        rowById.clear();
+        columns.clear();
+        liveRows.clear();
+        liveRank.clear();
+        rowsByGenre.clear();
+        rowsByStatus.values().forEach(BitSet::clear);
+        Arrays.stream(rowsByRating).forEach(BitSet::clear);
+        Arrays.setAll(rowsByYear, i -> new OrdinalList());
+        trigrams.clear();
+        words.clear();
+        sortedRowsByKey.values().forEach(TreeSet::clear);
+        version++;
+    }
+
+    // record: posizione del film nello snapshot, -1 se il film resta in memoria
+    private boolean insertRow(Movie movie, int record) {
+        if (movie == null || movie.getId() == null || rowById.containsKey(movie.getId())) {
+            return false;
+        }
+        int row = rows.size();
+        rowById.put(movie.getId(), row);
+        if (record >= 0) {
+            rows.addFromSource(record, movie);
+        } else {
+            rows.add(movie);
+        }
+        index(row, movie, true);
+        return true;
+    }
+
+    private void index(int row, Movie movie, boolean text) {
+        String genreKey = genreKey(movie.getGenere());
+        columns.set(row, genreKey, movie);
+        if (!liveRows.get(row)) {
+            liveRows.set(row);
+            liveRank.add(row);
+        }
+
+        if (genreKey != null) {
+            rowsByGenre.computeIfAbsent(genreKey, k -> new BitSet()).set(row);
+            String genre = columns.genre(row);
+            touchedGenres.putIfAbsent(genre, genreCounts.containsKey(genre));
+            genreCounts.merge(genre, 1, Integer::sum);
+        }
+        if (movie.getStatoVisione() != null) {
+            rowsByStatus.get(movie.getStatoVisione()).set(row);
+        }
+        int ratingSlot = ratingSlot(columns.rating(row));
+        if (ratingSlot >= 0) {
+            rowsByRating[ratingSlot].set(row);
+        }
+        int yearSlot = yearSlot(columns.year(row));
+        if (yearSlot >= 0) {
+            rowsByYear[yearSlot].add(row);
+        }
+        if (text) {
+            trigrams.add(row, columns.titoloKey(row), columns.registaKey(row));
+            words.add(row, columns.titoloKey(row), columns.registaKey(row));
+        }
+        for (TreeSet<Integer> sorted : sortedRowsByKey.values()) {
+            sorted.add(row);
+        }
+    }
+
+    private void unindex(int row, boolean text) {
+        // Va tolta dalle viste ordinate prima che le colonne (usate per il confronto) cambino
+        for (TreeSet<Integer> sorted : sortedRowsByKey.values()) {
+            sorted.remove(row);
+        }
+        if (liveRows.get(row)) {
+            liveRows.clear(row);
+            liveRank.remove(row);
+        }
+
+        String genreKey = columns.genreKey(row);
+        if (genreKey != null) {
+            BitSet genreRows = rowsByGenre.get(genreKey);
+            genreRows.clear(row);
+            if (genreRows.isEmpty()) {
+                rowsByGenre.remove(genreKey);
+            }
+            String genre = columns.genre(row);
+            touchedGenres.putIfAbsent(genre, true);
+            genreCounts.computeIfPresent(genre, (g, count) -> count > 1 ? count - 1 : null);
+        }
+        ViewingStatus status = columns.status(row);
+        if (status != null) {
+            rowsByStatus.get(status).clear(row);
+        }
+        int ratingSlot = ratingSlot(columns.rating(row));
+        if (ratingSlot >= 0) {
+            rowsByRating[ratingSlot].clear(row);
+        }
+        int yearSlot = yearSlot(columns.year(row));
+        if (yearSlot >= 0) {
+            rowsByYear[yearSlot].remove(row);
+        }
+        if (text) {
+            trigrams.remove(row, columns.titoloKey(row), columns.registaKey(row));
+            words.remove(row, columns.titoloKey(row), columns.registaKey(row));
+        }
+    }
+
+    private void fireGenreChanges() {
+        if (touchedGenres.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, Boolean>> changes = new ArrayList<>(touchedGenres.entrySet());
+        touchedGenres.clear();
+        for (Map.Entry<String, Boolean> change : changes) {
+            boolean wasPresent = change.getValue();
+            boolean isPresent = genreCounts.containsKey(change.getKey());
+            for (GenreListener listener : new ArrayList<>(genreListeners)) {
+                if (!wasPresent && isPresent) {
+                    listener.genreAdded(change.getKey());
+                } else if (wasPresent && !isPresent) {
+                    listener.genreRemoved(change.getKey());
+                }
+            }
+        }
+    }
+
+    // AND parola per parola delle bitmap coinvolte, dalla più selettiva alla meno selettiva.
+    // textRows: righe che contengono il testo della query, già verificate (null se non serve)
+    private BitSet selectRows(QueryPlan plan, BitSet textRows) {
+        List<BitSet> filters = new ArrayList<>();
+        if (plan.genreKey != null) {
+            filters.add(rowsByGenre.getOrDefault(plan.genreKey, new BitSet()));
+        }
+        if (plan.status != null) {
+            filters.add(rowsByStatus.get(plan.status));
+        }
+        if (plan.ratingRange) {
+            filters.add(union(rowsByRating, plan.minRatingSlot, plan.maxRatingSlot));
+        }
+        if (plan.yearRange) {
+            filters.add(yearRange(plan.minYear, plan.maxYear));
+        }
+        if (textRows != null) {
+            filters.add(textRows);
+        }
+        if (filters.isEmpty()) {
+            return liveRows;
+        }
+
+        filters.sort((a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+        BitSet result = (BitSet) filters.get(0).clone();
+        for (int i = 1; i < filters.size() && !result.isEmpty(); i++) {
+            result.and(filters.get(i));
+        }
+        return result;
+    }
+
+    private static BitSet union(BitSet[] bitmaps, int first, int last) {
+        if (first == last) {
+            return bitmaps[first];
+        }
+        BitSet result = new BitSet();
+        for (int i = first; i <= last; i++) {
+            result.or(bitmaps[i]);
+        }
+        return result;
+    }
+
+    // Righe con anno in [minYear, maxYear]: solo i bucket degli anni coinvolti, O(anni + risultati)
+    private BitSet yearRange(int minYear, int maxYear) {
+        int first = Math.max(minYear, AppConfiguration.MIN_YEAR) - AppConfiguration.MIN_YEAR;
+        int last = Math.min(maxYear, AppConfiguration.MAX_YEAR) - AppConfiguration.MIN_YEAR;
+        BitSet result = new BitSet(rows.size());
+        for (int slot = first; slot <= last; slot++) {
+            OrdinalList yearRows = rowsByYear[slot];
+            for (int i = 0; i < yearRows.size(); i++) {
+                result.set(yearRows.get(i));
+            }
+        }
+        return result;
+    }
+
+    // L'unico criterio non risolto dagli indici: il testo, verificato sui candidati.
+    // L'insieme restituito è condiviso con la cache: non va modificato
+    private BitSet textMatches(String queryKey) {
+        BitSet cached = textCache.get(queryKey, version);
+        if (cached != null) {
+            return cached;
+        }
+        BitSet candidates = textCache.narrowestSuperset(queryKey, version);
+        if (candidates == null) {
+            candidates = trigrams.candidates(queryKey);
+        }
+        // Chiamato con il lock già preso: la verifica non viene interrotta
+        return verifyText(queryKey, candidates != null ? candidates : liveRows, version);
+    }
+
+    // Superinsieme delle righe che contengono il testo, da calcolare sotto il lock: i risultati
+    // di una ricerca precedente quando il testo la estende, altrimenti la lista più corta dei
+    // trigrammi (l'intersezione con le altre costerebbe quanto la verifica, ma tutta sotto il lock)
+    private BitSet textCandidates(String queryKey) {
+        BitSet candidates = textCache.narrowestSuperset(queryKey, version);
+        if (candidates == null) {
+            candidates = trigrams.shortestList(queryKey);
+        }
+        return candidates != null ? candidates : liveRows;
+    }
+
+    // Verifica i candidati a blocchi, ognuno sotto il lock; i candidati possono essere bitmap
+    // condivise (es. liveRows) perché vengono letti solo sotto il lock e a versione invariata.
+    // Null se la collezione è cambiata nel frattempo
+    private BitSet verifyText(String queryKey, BitSet candidates, int expectedVersion) {
+        BitSet matches = new BitSet();
+        int from = 0;
+        while (from >= 0) {
+            synchronized (this) {
+                if (version != expectedVersion) {
+                    return null;
+                }
+                int row = candidates.nextSetBit(from);
+                for (int i = 0; i < QUERY_SLICE && row >= 0; i++) {
+                    if (matchesText(row, queryKey)) {
+                        matches.set(row);
+                    }
+                    row = candidates.nextSetBit(row + 1);
+                }
+                from = row;
+            }
+        }
+        synchronized (this) {
+            if (version != expectedVersion) {
+                return null;
+            }
+            textCache.put(queryKey, matches, version);
+        }
+        return matches;
+    }
+
+    // Verifica esatta dei candidati sulle chiavi già normalizzate: nessuna allocazione per film
+    private boolean matchesText(int row, String queryKey) {
+        return columns.titoloKey(row).contains(queryKey) ||
+                columns.registaKey(row).contains(queryKey);
+    }
+
+    private List<Movie> materialize(BitSet bitmap) {
+        if (bitmap == null) {
+            return new ArrayList<>();
+        }
+        List<Movie> result = new ArrayList<>(bitmap.cardinality());
+        for (int row = bitmap.nextSetBit(0); row >= 0; row = bitmap.nextSetBit(row + 1)) {
+            result.add(rows.get(row));
+        }
+        return result;
+    }
+
+    private TreeSet<Integer> sortedRows(SortKey sortKey) {
+        TreeSet<Integer> sorted = sortedRowsByKey.get(sortKey);
+        if (sorted == null) {
+            sorted = new TreeSet<>(rowComparator(sortKey));
+            for (int row = liveRows.nextSetBit(0); row >= 0; row = liveRows.nextSetBit(row + 1)) {
+                sorted.add(row);
+            }
+            sortedRowsByKey.put(sortKey, sorted);
+        }
+        return sorted;
+    }
+
+    private void sortRows(int[] matches, int count, QueryPlan plan) {
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = sortValue(matches[i], plan.sortKey);
+        }
+        sortByValues(matches, values, count, plan.descending);
+    }
+
+    // Ordina matches[0, count) secondo values (stesse posizioni); a parità vale l'ordine di inserimento.
+    // Non legge la collezione: può girare fuori dal lock
+    private static void sortByValues(int[] matches, Object[] values, int count, boolean descending) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Comparator<Integer> comparator = (a, b) -> compareValues(values[a], values[b]);
+        comparator = comparator.thenComparingInt(i -> matches[i]);
+        Arrays.sort(order, descending ? comparator.reversed() : comparator);
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = matches[order[i]];
+        }
+        System.arraycopy(sorted, 0, matches, 0, count);
+    }
+
+    // Confronto sui valori indicizzati; a parità vale l'ordine di inserimento
+    private Comparator<Integer> rowComparator(SortKey sortKey) {
+        Comparator<Integer> byValue = (a, b) -> compareValues(sortValue(a, sortKey), sortValue(b, sortKey));
+        return byValue.thenComparingInt(row -> row);
+    }
+
+    // Valore indicizzato della colonna di ordinamento: String, Integer o ViewingStatus
+    private Object sortValue(int row, SortKey sortKey) {
+        switch (sortKey) {
+            case TITOLO:
+                return columns.titoloKey(row);
+            case REGISTA:
+                return columns.registaKey(row);
+            case ANNO:
+                return columns.year(row);
+            case GENERE:
+                return columns.genreKey(row);
+            case VALUTAZIONE:
+                return columns.rating(row);
+            case STATO:
+                return columns.status(row);
+            default:
+                throw new IllegalArgumentException("Ordinamento non supportato: " + sortKey);
+        }
+    }
+
+    // I valori mancanti (genere, stato) vengono prima degli altri
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    private static String genreKey(String genere) {
+        return genere != null ? genere.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static int ratingSlot(int rating) {
+        return rating >= AppConfiguration.MIN_RATING && rating <= AppConfiguration.MAX_RATING
+                ? rating - AppConfiguration.MIN_RATING
+                : -1;
+    }
+
+    private static int yearSlot(int year) {
+        return year >= AppConfiguration.MIN_YEAR && year <= AppConfiguration.MAX_YEAR
+                ? year - AppConfiguration.MIN_YEAR
+                : -1;
+    }
+
+    // Risultato di una query in sola lettura, letto a pagine: i Movie di una pagina vengono
+    // materializzati al primo accesso (o con prefetch da un altro thread) e tenuti in una piccola LRU.
+    // Le righe sono una bitmap (ordine di inserimento) oppure ordinali in un ordine dato
+    public final class Cursor extends AbstractList<Movie> implements RandomAccess {
+        private final BitSet bitmap;
+        private final int[] ordinals;
+        private final int size;
+        private final int expectedVersion;
+        // Criteri che hanno prodotto il risultato, null per tutta la collezione (vedi follow)
+        private final QueryPlan plan;
+        // Solo bitmap: prima riga di ogni pagina, individuate in sequenza (sotto il lock della collezione)
+        private final int[] pageStarts;
+        private int knownPageStarts;
+        private final Map<Integer, Movie[]> pages;
+
+        private Cursor(BitSet bitmap, int size, QueryPlan plan) {
+            this(bitmap, null, size, plan);
+        }
+
+        private Cursor(int[] ordinals, int size, QueryPlan plan) {
+            this(null, ordinals, size, plan);
+        }
+
+        private Cursor(BitSet bitmap, int[] ordinals, int size, QueryPlan plan) {
+            this.bitmap = bitmap;
+            this.ordinals = ordinals;
+            this.size = size;
+            this.expectedVersion = version;
+            this.plan = plan;
+            this.pageStarts = bitmap != null ? new int[(size + PAGE_SIZE - 1) / PAGE_SIZE] : null;
+            if (bitmap != null && size > 0) {
+                pageStarts[0] = bitmap.nextSetBit(0);
+                knownPageStarts = 1;
+            }
+            this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Movie[]> eldest) {
+                    return size() > MAX_CACHED_PAGES;
+                }
+            };
+        }
+
+        @Override
+        public Movie get(int index) {
+            Objects.checkIndex(index, size);
+            checkVersion();
+            int page = index / PAGE_SIZE;
+            Movie[] movies = cachedPage(page);
+            if (movies == null) {
+                movies = loadPage(page);
+            }
+            return movies[index % PAGE_SIZE];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        public int getPageSize() {
+            return PAGE_SIZE;
+        }
+
+        // Posizione di un film senza materializzare le pagine: si parte dal suo ordinale.
+        // Conta l'id, non l'istanza: un film dello snapshot può essere stato decodificato di nuovo
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof Movie)) {
+                return -1;
+            }
+            synchronized (MovieCollection.this) {
+                checkVersion();
+                Integer row = rowById.get(((Movie) o).getId());
+                if (row == null) {
+                    return -1;
+                }
+                if (bitmap != null) {
+                    int position = bitmap.get(row) ? bitmapPosition(row) : -1;
+                    return position < size ? position : -1;
+                }
+                if (plan != null && plan.sortKey == null && !plan.fuzzy) {
+                    int position = Arrays.binarySearch(ordinals, 0, size, row);
+                    return position >= 0 ? position : -1;
+                }
+                for (int i = 0; i < size; i++) {
+                    if (ordinals[i] == row) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+        }
+
+        // Carica le pagine che coprono le posizioni [from, to], tipicamente da un thread in background
+        public void prefetch(int from, int to) {
+            int firstPage = Math.max(from, 0) / PAGE_SIZE;
+            int lastPage = Math.min(to, size - 1) / PAGE_SIZE;
+            for (int page = firstPage; page <= lastPage; page++) {
+                if (cachedPage(page) == null) {
+                    loadPage(page);
+                }
+            }
+        }
+
+        private Movie[] cachedPage(int page) {
+            synchronized (pages) {
+                return pages.get(page);
+            }
+        }
+
+        private Movie[] loadPage(int page) {
+            Movie[] movies;
+            synchronized (MovieCollection.this) {
+                checkVersion();
+                int first = page * PAGE_SIZE;
+                movies = new Movie[Math.min(PAGE_SIZE, size - first)];
+                if (ordinals != null) {
+                    for (int i = 0; i < movies.length; i++) {
+                        movies[i] = rows.get(ordinals[first + i]);
+                    }
+                } else {
+                    int row = pageStart(page);
+                    for (int i = 0; i < movies.length; i++) {
+                        movies[i] = rows.get(row);
+                        row = bitmap.nextSetBit(row + 1);
+                    }
+                    // La riga successiva è l'inizio della pagina dopo
+                    if (knownPageStarts == page + 1 && knownPageStarts < pageStarts.length) {
+                        pageStarts[knownPageStarts++] = row;
+                    }
+                }
+            }
+            synchronized (pages) {
+                pages.put(page, movies);
+            }
+            return movies;
+        }
+
+        // Posizione di una riga della bitmap, senza copiarla: per tutta la collezione la dà
+        // position(), altrimenti si conta dall'inizio di pagina noto che la precede
+        private int bitmapPosition(int row) {
+            if (bitmap == liveRows) {
+                return position(row);
+            }
+            if (size == 0) {
+                return -1;
+            }
+            while (knownPageStarts < pageStarts.length && pageStarts[knownPageStarts - 1] < row) {
+                pageStart(knownPageStarts);
+            }
+            int page = Arrays.binarySearch(pageStarts, 0, knownPageStarts, row);
+            if (page < 0) {
+                page = -page - 2;
+            }
+            int position = page * PAGE_SIZE;
+            for (int r = pageStarts[page]; r < row; r = bitmap.nextSetBit(r + 1)) {
+                position++;
+            }
+            return position;
+        }
+
+        // Si riparte dall'ultimo inizio di pagina noto: un salto lontano costa una sola scansione
+        private int pageStart(int page) {
+            while (knownPageStarts <= page) {
+                int row = pageStarts[knownPageStarts - 1];
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    row = bitmap.nextSetBit(row + 1);
+                }
+                pageStarts[knownPageStarts++] = row;
+            }
+            return pageStarts[page];
+        }
+
+        private void checkVersion() {
+            if (version != expectedVersion) {
+                throw new ConcurrentModificationException("La collezione è cambiata dopo la query");
+            }
+        }
+    }
+
+    // Effetto dell'ultima modifica su un risultato (vedi follow): il nuovo Cursor e le posizioni
+    // toccate, -1 se nessuna. Un film che cambia posizione (ordinamento) risulta rimosso e inserito;
+    // un blocco fuso in una vista ordinata cambia tutte le posizioni (isReordered)
+    public static final class CursorUpdate {
+        private final Cursor cursor;
+        private final int removedPosition;
+        private final int firstInsertedPosition;
+        private final int lastInsertedPosition;
+        private final int updatedPosition;
+        private final boolean reordered;
+
+        private CursorUpdate(Cursor cursor, int removedPosition, int firstInsertedPosition,
+                             int lastInsertedPosition, int updatedPosition) {
+            this(cursor, removedPosition, firstInsertedPosition, lastInsertedPosition, updatedPosition, false);
+        }
+
+        private CursorUpdate(Cursor cursor, int removedPosition, int firstInsertedPosition,
+                             int lastInsertedPosition, int updatedPosition, boolean reordered) {
+            this.cursor = cursor;
+            this.removedPosition = removedPosition;
+            this.firstInsertedPosition = firstInsertedPosition;
+            this.lastInsertedPosition = lastInsertedPosition;
+            this.updatedPosition = updatedPosition;
+            this.reordered = reordered;
+        }
+
+        public Cursor getCursor() {
+            return cursor;
+        }
+
+        public int getRemovedPosition() {
+            return removedPosition;
+        }
+
+        public int getFirstInsertedPosition() {
+            return firstInsertedPosition;
+        }
+
+        public int getLastInsertedPosition() {
+            return lastInsertedPosition;
+        }
+
+        public int getUpdatedPosition() {
+            return updatedPosition;
+        }
+
+        public boolean isReordered() {
+            return reordered;
+        }
+    }
+
+    private enum Change {
+        INSERTED, UPDATED, REMOVED
+    }
+
+    // MovieQuery con i limiti risolti rispetto agli indici
+    private static final class QueryPlan {
+        private final String genreKey;
+        private final ViewingStatus status;
+        private final boolean ratingRange;
+        private final int minRatingSlot;
+        private final int maxRatingSlot;
+        private final boolean yearRange;
+        private final int minYear;
+        private final int maxYear;
+        private final String textKey;
+        private final boolean fuzzy;
+        private final int limit;
+        private final SortKey sortKey;
+        private final boolean descending;
+
+        private QueryPlan(MovieQuery query) {
+            this.genreKey = query.hasGenere() ? genreKey(query.getGenere()) : null;
+            this.status = query.getStatus();
+
+            this.ratingRange = query.hasRatingRange();
+            if (ratingRange) {
+                int minRating = Math.max(query.getMinRating(), AppConfiguration.MIN_RATING);
+                int maxRating = query.getMaxRating() > 0
+                        ? Math.min(query.getMaxRating(), AppConfiguration.MAX_RATING)
+                        : AppConfiguration.MAX_RATING;
+                this.minRatingSlot = minRating - AppConfiguration.MIN_RATING;
+                this.maxRatingSlot = maxRating - AppConfiguration.MIN_RATING;
+            } else {
+                this.minRatingSlot = Integer.MIN_VALUE;
+                this.maxRatingSlot = Integer.MAX_VALUE;
+            }
+
+            this.yearRange = query.hasYearRange();
+            this.minYear = query.getMinYear() > 0 ? query.getMinYear() : Integer.MIN_VALUE;
+            this.maxYear = query.getMaxYear() > 0 ? query.getMaxYear() : Integer.MAX_VALUE;
+            this.textKey = query.hasText() ? SearchKeys.normalize(query.getText()) : null;
+            this.fuzzy = query.isFuzzy() && textKey != null;
+            this.limit = query.getLimit() > 0 ? query.getLimit() : Integer.MAX_VALUE;
+            this.sortKey = query.getSortKey();
+            this.descending = query.isDescending();
         }
     }
-}
\ No newline at end of file
+}
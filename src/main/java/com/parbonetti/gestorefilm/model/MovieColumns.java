@@ -0,0 +1,85 @@
+package com.parbonetti.gestorefilm.model;
+
+import java.util.Arrays;
+
+// Valori indicizzati di ogni riga di MovieCollection, in colonne parallele agli ordinali.
+// Servono a togliere una riga dagli indici anche dopo che il film è stato modificato sul posto
+// e a verificare i criteri di una query (testo compreso) senza dereferenziare i Movie.
+final class MovieColumns {
+    static final byte NO_STATUS = -1;
+    private static final ViewingStatus[] STATUSES = ViewingStatus.values();
+
+    private String[] genres;
+    private String[] genreKeys;
+    private String[] titoloKeys;
+    private String[] registaKeys;
+    private byte[] statuses;
+    private byte[] ratings;
+    private int[] years;
+
+    MovieColumns() {
+        clear();
+    }
+
+    void set(int row, String genreKey, Movie movie) {
+        ensureCapacity(row + 1);
+        genres[row] = movie.getGenere();
+        genreKeys[row] = genreKey;
+        titoloKeys[row] = movie.getTitoloKey();
+        registaKeys[row] = movie.getRegistaKey();
+        statuses[row] = movie.getStatoVisione() != null ? (byte) movie.getStatoVisione().ordinal() : NO_STATUS;
+        ratings[row] = (byte) movie.getValutazione();
+        years[row] = movie.getAnnoUscita();
+    }
+
+    String genre(int row) {
+        return genres[row];
+    }
+
+    String genreKey(int row) {
+        return genreKeys[row];
+    }
+
+    String titoloKey(int row) {
+        return titoloKeys[row];
+    }
+
+    String registaKey(int row) {
+        return registaKeys[row];
+    }
+
+    ViewingStatus status(int row) {
+        return statuses[row] != NO_STATUS ? STATUSES[statuses[row]] : null;
+    }
+
+    int rating(int row) {
+        return ratings[row];
+    }
+
+    int year(int row) {
+        return years[row];
+    }
+
+    void clear() {
+        genres = new String[16];
+        genreKeys = new String[16];
+        titoloKeys = new String[16];
+        registaKeys = new String[16];
+        statuses = new byte[16];
+        ratings = new byte[16];
+        years = new int[16];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > years.length) {
+            int newLength = Math.max(capacity, years.length * 2);
+            genres = Arrays.copyOf(genres, newLength);
+            genreKeys = Arrays.copyOf(genreKeys, newLength);
+            titoloKeys = Arrays.copyOf(titoloKeys, newLength);
+            registaKeys = Arrays.copyOf(registaKeys, newLength);
+            statuses = Arrays.copyOf(statuses, newLength);
+            ratings = Arrays.copyOf(ratings, newLength);
+            years = Arrays.copyOf(years, newLength);
+        }
+    }
+}
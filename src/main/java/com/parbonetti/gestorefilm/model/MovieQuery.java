@@ -0,0 +1,136 @@
+package com.parbonetti.gestorefilm.model;
+
+// Criteri combinati di ricerca e filtro, valutati in un solo passaggio da MovieCollection.query.
+// I campi non impostati (null o 0) non filtrano.
+public class MovieQuery {
+    private String text;
+    private String genere;
+    private ViewingStatus status;
+    private int minRating;
+    private int maxRating;
+    private int minYear;
+    private int maxYear;
+    private boolean fuzzy;
+    private int limit;
+    private SortKey sortKey;
+    private boolean descending;
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getGenere() {
+        return genere;
+    }
+
+    public void setGenere(String genere) {
+        this.genere = genere;
+    }
+
+    public ViewingStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ViewingStatus status) {
+        this.status = status;
+    }
+
+    public int getMinRating() {
+        return minRating;
+    }
+
+    public int getMaxRating() {
+        return maxRating;
+    }
+
+    public void setRatingRange(int minRating, int maxRating) {
+        this.minRating = minRating;
+        this.maxRating = maxRating;
+    }
+
+    public int getMinYear() {
+        return minYear;
+    }
+
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    public void setYearRange(int minYear, int maxYear) {
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+    }
+
+    public boolean isFuzzy() {
+        return fuzzy;
+    }
+
+    // Ricerca tollerante agli errori di battitura: risultati ordinati per pertinenza
+    public void setFuzzy(boolean fuzzy) {
+        this.fuzzy = fuzzy;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    // null = ordine di inserimento (o di pertinenza nella ricerca tollerante)
+    public void setSort(SortKey sortKey, boolean descending) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+    }
+
+    public boolean hasText() {
+        return text != null && !text.trim().isEmpty();
+    }
+
+    public boolean hasGenere() {
+        return genere != null && !genere.trim().isEmpty() && !genere.equals("Tutti");
+    }
+
+    public boolean hasStatus() {
+        return status != null;
+    }
+
+    public boolean hasRatingRange() {
+        return minRating > 0 || maxRating > 0;
+    }
+
+    public boolean hasYearRange() {
+        return minYear > 0 || maxYear > 0;
+    }
+
+    public boolean isEmpty() {
+        return !hasText() && !hasGenere() && !hasStatus() && !hasRatingRange() && !hasYearRange();
+    }
+
+    @Override
+    public String toString() {
+        return "MovieQuery{" +
+                "text='" + text + '\'' +
+                ", genere='" + genere + '\'' +
+                ", status=" + status +
+                ", rating=" + minRating + ".." + maxRating +
+                ", anno=" + minYear + ".." + maxYear +
+                ", fuzzy=" + fuzzy +
+                ", limit=" + limit +
+                ", sort=" + sortKey + (descending ? " desc" : "") +
+                '}';
+    }
+}
@@ -0,0 +1,100 @@
+package com.parbonetti.gestorefilm.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Righe di MovieCollection, indicizzate per ordinale. Una riga può essere:
+//  - residente: il Movie è in memoria (film aggiunti, o modificati dopo il caricamento)
+//  - nello snapshot: solo la posizione del record in una MovieSource; il Movie viene decodificato
+//    alla lettura e tenuto in una LRU limitata, quindi i Movie in memoria non crescono con il catalogo
+//    (gli indici della collezione invece sì: si costruiscono leggendo tutti i record al caricamento)
+//  - rimossa
+// Una modifica rende residente la riga (copy-on-write): lo snapshot non viene mai scritto.
+// Accesso solo sotto il lock della collezione
+final class MovieRows {
+    private static final int NO_RECORD = -1;
+
+    private final int cacheSize;
+    private final List<Movie> resident;
+    private int[] records;
+    private MovieSource source;
+    // Record dello snapshot -> film decodificato, in ordine di accesso
+    private final Map<Integer, Movie> decoded;
+
+    MovieRows(int cacheSize) {
+        this.cacheSize = cacheSize;
+        this.resident = new ArrayList<>();
+        this.records = new int[16];
+        this.decoded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Movie> eldest) {
+                return size() > MovieRows.this.cacheSize;
+            }
+        };
+    }
+
+    int size() {
+        return resident.size();
+    }
+
+    // null se la riga è stata rimossa
+    Movie get(int row) {
+        Movie movie = resident.get(row);
+        if (movie != null || records[row] == NO_RECORD) {
+            return movie;
+        }
+        return decoded.computeIfAbsent(records[row], source::movie);
+    }
+
+    void add(Movie movie) {
+        append(movie, NO_RECORD);
+    }
+
+    // La riga fa riferimento al record dello snapshot; movie è la sua versione decodificata
+    void addFromSource(int record, Movie movie) {
+        append(null, record);
+        decoded.put(record, movie);
+    }
+
+    // Dopo una modifica il film resta in memoria, anche se proviene dallo snapshot
+    void set(int row, Movie movie) {
+        resident.set(row, movie);
+        if (records[row] != NO_RECORD) {
+            decoded.remove(records[row]);
+            records[row] = NO_RECORD;
+        }
+    }
+
+    void remove(int row) {
+        set(row, null);
+    }
+
+    // Record dello snapshot della riga, -1 se residente o rimossa
+    int record(int row) {
+        return resident.get(row) == null ? records[row] : NO_RECORD;
+    }
+
+    MovieSource source() {
+        return source;
+    }
+
+    // source: il nuovo snapshot di riferimento (null se non ce n'è)
+    void clear(MovieSource source) {
+        this.source = source;
+        resident.clear();
+        records = new int[16];
+        decoded.clear();
+    }
+
+    private void append(Movie movie, int record) {
+        int row = resident.size();
+        if (row == records.length) {
+            records = Arrays.copyOf(records, row * 2);
+        }
+        records[row] = record;
+        resident.add(movie);
+    }
+}
@@ -0,0 +1,11 @@
+package com.parbonetti.gestorefilm.model;
+
+// Film di uno snapshot accessibili per posizione senza tenerli tutti nello heap (es. file mappato).
+// movie() può essere chiamato da più thread e restituisce ogni volta una nuova istanza.
+// La sorgente verifica i record quando viene aperta: movie() non lancia eccezioni per un file rotto
+public interface MovieSource {
+    int size();
+
+    // null se il record non è un film valido
+    Movie movie(int index);
+}
@@ -0,0 +1,69 @@
+package com.parbonetti.gestorefilm.model;
+
+import java.util.Arrays;
+
+// Insieme ordinato di ordinali di riga, usato come lista di posting dagli indici sparsi
+// (anni, trigrammi, parole).
+// Gli ordinali crescono con l'inserimento, quindi aggiungere un nuovo film è un append.
+final class OrdinalList {
+    private int[] values;
+    private int size;
+
+    OrdinalList() {
+        this.values = new int[8];
+    }
+
+    void add(int ordinal) {
+        if (size == 0 || values[size - 1] < ordinal) {
+            ensureCapacity();
+            values[size++] = ordinal;
+            return;
+        }
+
+        int pos = Arrays.binarySearch(values, 0, size, ordinal);
+        if (pos >= 0) {
+            return;
+        }
+        pos = -pos - 1;
+        ensureCapacity();
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        values[pos] = ordinal;
+        size++;
+    }
+
+    void remove(int ordinal) {
+        int pos = Arrays.binarySearch(values, 0, size, ordinal);
+        if (pos < 0) {
+            return;
+        }
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+    }
+
+    // Posizione dell'ordinale cercando da "from" in poi, come Arrays.binarySearch
+    int search(int ordinal, int from) {
+        return Arrays.binarySearch(values, from, size, ordinal);
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+    }
+}
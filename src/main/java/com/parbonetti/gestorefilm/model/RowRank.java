@@ -0,0 +1,68 @@
+package com.parbonetti.gestorefilm.model;
+
+import java.util.Arrays;
+
+// Numero di righe vive per blocchi di 64 ordinali, in un albero di Fenwick: quante righe vive
+// precedono un blocco si ricava in O(log n), senza scorrere né copiare la bitmap delle righe.
+// Il conteggio dentro il blocco (al più 63 bit) resta a chi usa la bitmap
+final class RowRank {
+    private static final int BLOCK_SHIFT = 6;
+
+    private int[] blockCounts; // righe vive per blocco
+    private int[] tree;        // albero di Fenwick sui blocchi, indici da 1
+
+    RowRank() {
+        clear();
+    }
+
+    void add(int row) {
+        update(row >>> BLOCK_SHIFT, 1);
+    }
+
+    void remove(int row) {
+        update(row >>> BLOCK_SHIFT, -1);
+    }
+
+    // Righe vive nei blocchi che precedono quello di row
+    int countBefore(int row) {
+        int count = 0;
+        for (int i = Math.min(row >>> BLOCK_SHIFT, blockCounts.length); i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    // Primo ordinale del blocco di row
+    static int blockStart(int row) {
+        return row >>> BLOCK_SHIFT << BLOCK_SHIFT;
+    }
+
+    void clear() {
+        blockCounts = new int[64];
+        tree = new int[blockCounts.length + 1];
+    }
+
+    private void update(int block, int delta) {
+        if (block >= blockCounts.length) {
+            grow(block + 1);
+        }
+        blockCounts[block] += delta;
+        for (int i = block + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // I nodi dell'albero coprono intervalli che dipendono dalla lunghezza: si ricostruisce
+    // dai conteggi, in O(n) a ogni raddoppio
+    private void grow(int blocks) {
+        blockCounts = Arrays.copyOf(blockCounts, Math.max(blocks, blockCounts.length * 2));
+        tree = new int[blockCounts.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += blockCounts[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.parbonetti.gestorefilm.model;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Normalizzazione comune a chiavi di ricerca dei film e query: minuscolo e senza accenti,
+// così "perche" trova "Perché". I testi ASCII (il caso comune) non passano dal Normalizer.
+final class SearchKeys {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchKeys() {
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+                return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+            }
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,11 @@
+package com.parbonetti.gestorefilm.model;
+
+// Criteri di ordinamento mantenuti da MovieCollection
+public enum SortKey {
+    TITOLO,
+    REGISTA,
+    ANNO,
+    GENERE,
+    VALUTAZIONE,
+    STATO
+}
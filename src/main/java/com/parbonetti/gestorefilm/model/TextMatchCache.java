@@ -0,0 +1,73 @@
+package com.parbonetti.gestorefilm.model;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+
+// Ultimi insiemi di righe trovati dalla ricerca testuale. Mentre si scrive ("kub" -> "kubr")
+// il nuovo testo contiene il precedente, quindi basta filtrare quei risultati;
+// con il backspace si ritrova direttamente un insieme già calcolato.
+// Valido solo finché la collezione non cambia (version)
+final class TextMatchCache {
+    private static final int MAX_ENTRIES = 8;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private int version = -1;
+
+    // Righe che contengono esattamente textKey, se già calcolate
+    BitSet get(String textKey, int version) {
+        validate(version);
+        for (Entry entry : entries) {
+            if (entry.textKey.equals(textKey)) {
+                return entry.rows;
+            }
+        }
+        return null;
+    }
+
+    // Insieme più piccolo tra quelli di un testo contenuto in textKey: è un superinsieme del risultato
+    BitSet narrowestSuperset(String textKey, int version) {
+        validate(version);
+        BitSet best = null;
+        for (Entry entry : entries) {
+            if (textKey.contains(entry.textKey) && (best == null || entry.cardinality < best.cardinality())) {
+                best = entry.rows;
+            }
+        }
+        return best;
+    }
+
+    void put(String textKey, BitSet rows, int version) {
+        validate(version);
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().textKey.equals(textKey)) {
+                iterator.remove();
+            }
+        }
+        entries.addFirst(new Entry(textKey, rows));
+        if (entries.size() > MAX_ENTRIES) {
+            entries.removeLast();
+        }
+    }
+
+    private void validate(int version) {
+        if (this.version != version) {
+            entries.clear();
+            this.version = version;
+        }
+    }
+
+    private static final class Entry {
+        private final String textKey;
+        private final BitSet rows;
+        private final int cardinality;
+
+        private Entry(String textKey, BitSet rows) {
+            this.textKey = textKey;
+            this.rows = rows;
+            this.cardinality = rows.cardinality();
+        }
+    }
+}
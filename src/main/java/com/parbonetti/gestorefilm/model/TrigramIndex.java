@@ -0,0 +1,125 @@
+package com.parbonetti.gestorefilm.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Indice invertito dei trigrammi delle chiavi di ricerca di titolo e regista -> ordinali delle righe.
+// Una riga che contiene la query contiene anche tutti i suoi trigrammi: l'intersezione delle
+// liste dà i candidati, che MovieCollection verifica poi con contains.
+final class TrigramIndex {
+    static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, OrdinalList> postings;
+
+    TrigramIndex() {
+        this.postings = new HashMap<>();
+    }
+
+    void add(int row, String titoloKey, String registaKey) {
+        addGrams(row, titoloKey);
+        addGrams(row, registaKey);
+    }
+
+    void remove(int row, String titoloKey, String registaKey) {
+        removeGrams(row, titoloKey);
+        removeGrams(row, registaKey);
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    // Righe che contengono tutti i trigrammi della query, a partire dalla lista più corta.
+    // null se la query è troppo corta per avere trigrammi: vanno verificate tutte le righe
+    BitSet candidates(String queryKey) {
+        List<OrdinalList> lists = postingLists(queryKey);
+        if (lists == null) {
+            return null;
+        }
+
+        // Si parte dalla lista più corta e si tengono solo gli ordinali presenti nelle altre
+        int[] rows = lists.get(0).toArray();
+        int count = rows.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            OrdinalList other = lists.get(l);
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count && from < other.size(); i++) {
+                int pos = other.search(rows[i], from);
+                if (pos >= 0) {
+                    rows[kept++] = rows[i];
+                    from = pos + 1;
+                } else {
+                    from = -pos - 1;
+                }
+            }
+            count = kept;
+        }
+        return toBitSet(rows, count);
+    }
+
+    // Solo le righe della lista più corta: un superinsieme più largo di candidates, ma che costa
+    // una copia. Serve quando i candidati vengono comunque verificati uno per uno
+    BitSet shortestList(String queryKey) {
+        List<OrdinalList> lists = postingLists(queryKey);
+        if (lists == null) {
+            return null;
+        }
+        int[] rows = lists.get(0).toArray();
+        return toBitSet(rows, rows.length);
+    }
+
+    // Liste dei trigrammi della query, dalla più corta; una lista vuota se un trigramma manca
+    private List<OrdinalList> postingLists(String queryKey) {
+        if (queryKey.length() < GRAM_LENGTH) {
+            return null;
+        }
+        List<OrdinalList> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= queryKey.length(); i++) {
+            OrdinalList rows = postings.get(gram(queryKey, i));
+            if (rows == null) {
+                return List.of(new OrdinalList());
+            }
+            lists.add(rows);
+        }
+        lists.sort(Comparator.comparingInt(OrdinalList::size));
+        return lists;
+    }
+
+    private static BitSet toBitSet(int[] rows, int count) {
+        BitSet result = new BitSet();
+        for (int i = 0; i < count; i++) {
+            result.set(rows[i]);
+        }
+        return result;
+    }
+
+    private void addGrams(int row, String text) {
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            postings.computeIfAbsent(gram(text, i), k -> new OrdinalList()).add(row);
+        }
+    }
+
+    private void removeGrams(int row, String text) {
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            Long key = gram(text, i);
+            OrdinalList rows = postings.get(key);
+            if (rows != null) {
+                rows.remove(row);
+                if (rows.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    private static long gram(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+}
@@ -0,0 +1,217 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieSource;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Formato binario compatto (.gfb): registi e generi scritti una volta sola in un dizionario,
+// numeri in varint, UUID in 16 byte. La lettura passa da BinarySnapshot, che mappa il file
+// in memoria invece di interpretare del testo
+public class BinaryPersistence implements PersistenceStrategy {
+    private static final String EXTENSION = ".gfb";
+
+    @Override
+    public void save(List<Movie> movies, String filepath) {
+        if (movies == null) {
+            throw new IllegalArgumentException("La lista dei film non può essere null");
+        }
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Il percorso non può essere null o vuoto");
+        }
+
+        if (!filepath.endsWith(EXTENSION)) {
+            filepath += EXTENSION;
+        }
+
+        try {
+            // Dizionario e record vanno preparati prima: l'header contiene le loro posizioni
+            Map<String, Integer> dictionary = new HashMap<>();
+            ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+            ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(movies.size() * 64);
+            DataOutputStream dictionaryOut = new DataOutputStream(dictionaryBytes);
+            DataOutputStream recordOut = new DataOutputStream(recordBytes);
+            int[] offsets = new int[movies.size()];
+
+            for (int i = 0; i < movies.size(); i++) {
+                Movie movie = movies.get(i);
+                offsets[i] = recordOut.size();
+                UUID uuid = parseUuid(movie.getId());
+                int flags = (uuid != null ? BinarySnapshot.FLAG_UUID : 0)
+                        | (movie.getGenere() != null ? BinarySnapshot.FLAG_GENERE : 0);
+
+                recordOut.writeByte(flags);
+                if (uuid != null) {
+                    recordOut.writeLong(uuid.getMostSignificantBits());
+                    recordOut.writeLong(uuid.getLeastSignificantBits());
+                } else {
+                    writeString(recordOut, movie.getId());
+                }
+                writeString(recordOut, movie.getTitolo());
+                writeVarint(recordOut, dictionaryIndex(dictionary, dictionaryOut, movie.getRegista()));
+                if (movie.getGenere() != null) {
+                    writeVarint(recordOut, dictionaryIndex(dictionary, dictionaryOut, movie.getGenere()));
+                }
+                writeVarint(recordOut, movie.getAnnoUscita());
+                recordOut.writeByte(movie.getValutazione());
+                recordOut.writeByte(movie.getStatoVisione().ordinal());
+            }
+
+            int dictionaryOffset = BinarySnapshot.HEADER_SIZE;
+            int offsetsOffset = dictionaryOffset + dictionaryBytes.size();
+            long recordsOffset = offsetsOffset + 4L * offsets.length;
+            if (recordsOffset + recordBytes.size() > Integer.MAX_VALUE - 64) {
+                throw new IOException("Collezione troppo grande per il formato binario");
+            }
+
+            SafeFiles.writeBinary(filepath, stream -> {
+                DataOutputStream out = new DataOutputStream(stream);
+                out.writeInt(BinarySnapshot.MAGIC);
+                out.writeShort(BinarySnapshot.VERSION);
+                out.writeShort(0);
+                out.writeInt(movies.size());
+                out.writeInt(dictionary.size());
+                out.writeInt(dictionaryOffset);
+                out.writeInt(offsetsOffset);
+                out.writeInt((int) recordsOffset);
+                out.writeInt(0);
+                dictionaryBytes.writeTo(out);
+                for (int offset : offsets) {
+                    out.writeInt(offset);
+                }
+                recordBytes.writeTo(out);
+                out.flush();
+            });
+            System.out.println("Salvataggio effettuato correttamente in: " + filepath);
+
+        } catch (IOException e) {
+            System.err.println("Error saving to binary: " + e.getMessage());
+            throw new RuntimeException("Non sono riuscito a salvare la collezione in formato binario", e);
+        }
+    }
+
+    @Override
+    public List<Movie> load(String filepath) {
+        List<Movie> movies = new ArrayList<>();
+        read(filepath, movies::add);
+        return movies;
+    }
+
+    @Override
+    public void load(String filepath, int batchSize, Consumer<List<Movie>> batches) {
+        MovieBatcher batcher = new MovieBatcher(batchSize, batches);
+        read(filepath, batcher);
+        batcher.flush();
+    }
+
+    // Il file resta mappato e i film vengono decodificati quando la collezione li richiede.
+    // I record vengono verificati qui: un file rotto fallisce prima di svuotare la collezione
+    @Override
+    public MovieSource open(String filepath) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("il percorso non può essere null o vuoto");
+        }
+
+        if (!filepath.endsWith(EXTENSION)) {
+            filepath += EXTENSION;
+        }
+
+        File file = new File(filepath);
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            BinarySnapshot snapshot = BinarySnapshot.open(file);
+            System.out.println("Aperto " + filepath + ": " + snapshot.size() + " film letti su richiesta");
+            return snapshot;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading from binary: " + e.getMessage());
+            throw new RuntimeException("Non sono riuscito a caricare la collezione dal file binario", e);
+        }
+    }
+
+    // Passa a onMovie un film alla volta, nell'ordine del file; ritorna quanti ne ha letti
+    public int read(String filepath, Consumer<Movie> onMovie) {
+        if (filepath == null || filepath.trim().isEmpty()) {
+            throw new IllegalArgumentException("il percorso non può essere null o vuoto");
+        }
+
+        if (!filepath.endsWith(EXTENSION)) {
+            filepath += EXTENSION;
+        }
+
+        File file = new File(filepath);
+
+        if (!file.exists()) {
+            System.out.println("File non trovato: " + filepath + ". Inizializzo una collezione vuota.");
+            return 0;
+        }
+
+        try {
+            BinarySnapshot snapshot = BinarySnapshot.open(file);
+            int count = 0;
+            for (int i = 0; i < snapshot.size(); i++) {
+                Movie movie = snapshot.movie(i);
+                if (movie != null) {
+                    onMovie.accept(movie);
+                    count++;
+                }
+            }
+            System.out.println("Ho caricato " + count + " film da: " + filepath);
+            return count;
+
+        } catch (IOException | RuntimeException e) {
+            // Un record malformato (es. file modificato a mano) fa fallire la lettura del buffer
+            System.err.println("Error loading from binary: " + e.getMessage());
+            throw new RuntimeException("Non sono riuscito a caricare la collezione dal file binario", e);
+        }
+    }
+
+    // Solo gli id nella forma canonica, così la rilettura restituisce la stessa stringa
+    private static UUID parseUuid(String id) {
+        if (id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int dictionaryIndex(Map<String, Integer> dictionary, DataOutputStream out, String value)
+            throws IOException {
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(value, index);
+            writeString(out, value);
+        }
+        return index;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
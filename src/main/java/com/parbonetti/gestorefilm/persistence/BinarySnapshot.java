@@ -0,0 +1,184 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieSource;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// Snapshot binario letto tramite FileChannel.map: il file non viene copiato nello heap,
+// si decodifica solo il film richiesto. Struttura (big endian, vedi BinaryPersistence):
+//   header    MAGIC, VERSION, numero film, numero stringhe, offset delle sezioni
+//   dizionario stringhe condivise (registi e generi): varint lunghezza + UTF-8
+//   offset    un int per film, posizione del record a partire dalla sezione record
+//   record    flag, id (UUID come due long, altrimenti stringa), titolo, regista e genere
+//             come indice nel dizionario, anno in varint, valutazione, stato
+// Il dizionario viene decodificato all'apertura: i film condividono le stesse String.
+// All'apertura si verifica anche la struttura di ogni record (offset, varint, lunghezze, indici
+// nel dizionario) senza creare oggetti: un file con un record rotto viene rifiutato prima che la
+// collezione venga toccata, e movie() non può fallire a metà caricamento
+class BinarySnapshot implements MovieSource {
+    static final int MAGIC = 0x47464231; // "GFB1"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+
+    static final int FLAG_UUID = 1;
+    static final int FLAG_GENERE = 2;
+
+    private final ByteBuffer buffer;
+    private final int movieCount;
+    private final String[] dictionary;
+    private final int offsetsOffset;
+    private final int recordsOffset;
+
+    private BinarySnapshot(ByteBuffer buffer, String name) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Non è un file binario della collezione: " + name);
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Versione del formato binario non supportata (" + buffer.getShort(4) + "): " + name);
+        }
+        this.movieCount = buffer.getInt(8);
+        int dictionarySize = buffer.getInt(12);
+        int dictionaryOffset = buffer.getInt(16);
+        this.offsetsOffset = buffer.getInt(20);
+        this.recordsOffset = buffer.getInt(24);
+        if (movieCount < 0 || dictionarySize < 0 || dictionaryOffset < HEADER_SIZE
+                || offsetsOffset < dictionaryOffset || recordsOffset < offsetsOffset
+                || recordsOffset > buffer.limit() || (long) movieCount * 4 > recordsOffset - offsetsOffset) {
+            throw new IOException("Header del file binario non valido: " + name);
+        }
+
+        this.dictionary = new String[dictionarySize];
+        try {
+            ByteBuffer in = buffer.duplicate().position(dictionaryOffset).limit(offsetsOffset);
+            for (int i = 0; i < dictionarySize; i++) {
+                dictionary[i] = readString(in);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("Dizionario del file binario non valido: " + name);
+        }
+        validateRecords(name);
+    }
+
+    // Stessa lettura di movie(), ma saltando i campi invece di decodificarli
+    private void validateRecords(String name) throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        for (int index = 0; index < movieCount; index++) {
+            try {
+                in.position(recordsOffset + buffer.getInt(offsetsOffset + index * 4));
+                int flags = in.get();
+                if ((flags & FLAG_UUID) != 0) {
+                    in.position(in.position() + 16);
+                } else {
+                    skipString(in);
+                }
+                skipString(in);
+                dictionaryIndex(in);
+                if ((flags & FLAG_GENERE) != 0) {
+                    dictionaryIndex(in);
+                }
+                readVarint(in);
+                in.get();
+                in.get();
+            } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+                throw new IOException("Film " + index + " non valido nel file binario (" + e.getMessage() + "): " + name);
+            }
+        }
+    }
+
+    // Mappa il file e ne verifica il checksum; un file danneggiato viene rifiutato subito
+    static BinarySnapshot open(File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File binario troppo grande: " + file.getPath());
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int contentLength = SafeFiles.verify(buffer, file.getPath());
+        return new BinarySnapshot(buffer.limit(contentLength), file.getPath());
+    }
+
+    @Override
+    public int size() {
+        return movieCount;
+    }
+
+    // Decodifica il film in posizione index; null se il record non supera la validazione
+    @Override
+    public Movie movie(int index) {
+        if (index < 0 || index >= movieCount) {
+            throw new IndexOutOfBoundsException("Film " + index + " su " + movieCount);
+        }
+        ByteBuffer in = buffer.duplicate().position(recordsOffset + buffer.getInt(offsetsOffset + index * 4));
+
+        int flags = in.get();
+        String id = (flags & FLAG_UUID) != 0
+                ? new UUID(in.getLong(), in.getLong()).toString()
+                : readString(in);
+        String titolo = readString(in);
+        String regista = dictionary[dictionaryIndex(in)];
+        String genere = (flags & FLAG_GENERE) != 0 ? dictionary[dictionaryIndex(in)] : null;
+        int annoUscita = readVarint(in);
+        int valutazione = in.get();
+        int stato = in.get();
+        if (stato < 0 || stato >= ViewingStatus.values().length) {
+            System.err.println("Film " + index + " ignorato: stato non valido (" + stato + ")");
+            return null;
+        }
+
+        try {
+            return new Movie(id, regista, ViewingStatus.values()[stato], valutazione, genere, annoUscita, titolo);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Film " + index + " ignorato: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private int dictionaryIndex(ByteBuffer in) {
+        int index = readVarint(in);
+        if (index < 0 || index >= dictionary.length) {
+            throw new IllegalStateException("indice " + index + " fuori dal dizionario di " + dictionary.length);
+        }
+        return index;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[stringLength(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(ByteBuffer in) {
+        int length = stringLength(in);
+        in.position(in.position() + length);
+    }
+
+    private static int stringLength(ByteBuffer in) {
+        int length = readVarint(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalStateException("stringa di " + length + " byte oltre la fine del file");
+        }
+        return length;
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Varint non valido");
+    }
+}
@@ -1,19 +1,35 @@
 package com.parbonetti.gestorefilm.persistence;
 
-import com.opencsv.CSVReader;
 import com.opencsv.CSVWriter;
-import com.opencsv.exceptions.CsvException;
 import com.parbonetti.gestorefilm.model.Movie;
 import com.parbonetti.gestorefilm.model.ViewingStatus;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class CSVPersistence implements PersistenceStrategy {
     private static final String[] CSV_HEADER = {
             "ID", "Titolo", "Regista", "Anno", "Genere", "Valutazione", "Stato"
     };
+    // Sotto questa dimensione dividere il file costa più di quanto si guadagna
+    private static final long PARALLEL_MIN_BYTES = 8L << 20;
+
+    private final int parallelism;
+
+    // Lettura sequenziale: misurato, l'import parallelo era più lento e tiene più film in memoria
+    public CSVPersistence() {
+        this(1);
+    }
+
+    // parallelism > 1: import parallelo a pezzi per i file grandi
+    public CSVPersistence(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Il parallelismo deve essere almeno 1");
+        }
+        this.parallelism = parallelism;
+    }
 
     @Override
     public void save(List<Movie> movies, String filepath) {
@@ -28,15 +44,19 @@ public class CSVPersistence implements PersistenceStrategy {
             filepath += ".csv";
         }
 
-        try (CSVWriter writer = new CSVWriter(new FileWriter(filepath))) {
-
-            writer.writeNext(CSV_HEADER);
-
-            // Scrivo ogni film come riga CSV
-            for (Movie movie : movies) {
-                String[] row = movieToStringArray(movie);
-                writer.writeNext(row);
-            }
+        try {
+            // File temporaneo + rename atomico: un crash non tronca il file esistente
+            SafeFiles.write(filepath, false, out -> {
+                CSVWriter writer = new CSVWriter(out);
+                writer.writeNext(CSV_HEADER);
+
+                // Scrivo ogni film come riga CSV
+                for (Movie movie : movies) {
+                    String[] row = movieToStringArray(movie);
+                    writer.writeNext(row);
+                }
+                writer.flush();
+            });
 
             System.out.println("Collezione salvata correttamente in: " + filepath);
 
@@ -60,6 +80,21 @@ public class CSVPersistence implements PersistenceStrategy {
 
     @Override
     public List<Movie> load(String filepath) {
+        List<Movie> movies = new ArrayList<>();
+        read(filepath, movies::add);
+        return movies;
+    }
+
+    @Override
+    public void load(String filepath, int batchSize, Consumer<List<Movie>> batches) {
+        MovieBatcher batcher = new MovieBatcher(batchSize, batches);
+        read(filepath, batcher);
+        batcher.flush();
+    }
+
+    // Legge una riga alla volta e passa a onMovie i film nell'ordine del file; ritorna quanti ne ha letti.
+    // Le righe non valide vengono segnalate con il numero di riga e saltate
+    public int read(String filepath, Consumer<Movie> onMovie) {
         if (filepath == null || filepath.trim().isEmpty()) {
             throw new IllegalArgumentException("Il percorso non può essere vuoto o null");
         }
@@ -72,72 +107,75 @@ public class CSVPersistence implements PersistenceStrategy {
 
         if (!file.exists()) {
             System.out.println("File non trovato: " + filepath + ". Inizializzo una collezione vuota.");
-            return new ArrayList<>();
+            return 0;
         }
 
-        List<Movie> movies = new ArrayList<>();
-
-        try (CSVReader reader = new CSVReader(new FileReader(file))) {
-
-            List<String[]> rows = reader.readAll();
-
-            if (rows.isEmpty()) {
-                return movies;
-            }
-
-            // Salta la prima riga (header)
-            for (int i = 1; i < rows.size(); i++) {
-                String[] row = rows.get(i);
-
-                // Salta righe vuote o incomplete
-                if (row.length < 7) {
-                    System.err.println("Skipping invalid row: " + String.join(",", row));
-                    continue;
-                }
-
-                try {
-                    Movie movie = stringArrayToMovie(row);
-                    movies.add(movie);
-                } catch (Exception e) {
-                    System.err.println("Error parsing row: " + String.join(",", row));
-                    System.err.println("Error: " + e.getMessage());
-                    // Continua con la prossima riga
+        int[] skipped = new int[1];
+        Consumer<String> onError = message -> {
+            System.err.println(message);
+            skipped[0]++;
+        };
+        try {
+            int count;
+            if (parallelism > 1 && file.length() >= PARALLEL_MIN_BYTES) {
+                count = new ParallelCsvImport(file, parallelism).run(onMovie, onError);
+            } else {
+                try (CsvRowReader reader = new CsvRowReader(SafeFiles.openVerified(file), 1)) {
+                    // Salta la prima riga (header)
+                    count = reader.next() < 0 ? 0 : parseRows(reader, onMovie, onError);
                 }
             }
 
-            System.out.println("Loaded " + movies.size() + " movies from: " + filepath);
-            return movies;
+            System.out.println("Loaded " + count + " movies from: " + filepath
+                    + (skipped[0] > 0 ? " (" + skipped[0] + " righe ignorate)" : ""));
+            return count;
 
         } catch (IOException e) {
             System.err.println("Error loading from CSV: " + e.getMessage());
             throw new RuntimeException("Non sono riuscito a caricare la collezione CSV", e);
-        } catch (CsvException e) {
-            throw new RuntimeException(e);
         }
     }
 
-    private Movie stringArrayToMovie(String[] row) {
-        // Parsing dei campi
-        String id = row[0];
-        String titolo = row[1];
-        String regista = row[2];
-        int annoUscita = Integer.parseInt(row[3]);
-        String genere = row[4];
-        int valutazione = Integer.parseInt(row[5]);
-        ViewingStatus statoVisione = ViewingStatus.valueOf(row[6]);
-
-        Movie movie = new Movie(regista, statoVisione, valutazione, genere, annoUscita, titolo);
+    // Converte i record fino alla fine del reader; le righe non valide vanno a onError con il
+    // numero di riga e vengono saltate. Ritorna quanti film ha passato a onMovie
+    static int parseRows(CsvRowReader reader, Consumer<Movie> onMovie, Consumer<String> onError) throws IOException {
+        int count = 0;
+        int fields;
+        while ((fields = reader.next()) >= 0) {
+            if (reader.isBlank()) {
+                continue;
+            }
+            if (fields < CSV_HEADER.length) {
+                onError.accept("Riga " + reader.lineNumber() + " ignorata: " + fields + " campi invece di "
+                        + CSV_HEADER.length);
+                continue;
+            }
 
-        // Usa reflection per impostare l'ID originale (mantiene lo stesso ID dopo save/load)
-        try {
-            java.lang.reflect.Field idField = Movie.class.getDeclaredField("id");
-            idField.setAccessible(true);
-            idField.set(movie, id);
-        } catch (Exception e) {
-            // Se fallisce, usa l'ID generato automaticamente (non è un problema critico)
-            System.err.println("Warning: Could not restore original ID for movie: " + titolo);
+            try {
+                // Il costruttore valida il film: con l'import parallelo anche la validazione lo è
+                onMovie.accept(rowToMovie(reader));
+                count++;
+            } catch (IllegalArgumentException e) {
+                // Continua con la prossima riga
+                onError.accept("Riga " + reader.lineNumber() + " ignorata: " + e.getMessage());
+            }
         }
+        return count;
+    }
 
-        return movie;
+    // NumberFormatException e valueOf() lanciano IllegalArgumentException, come la validazione di Movie
+    private static Movie rowToMovie(CsvRowReader row) {
+        String id = row.field(0);
+        String titolo = row.field(1);
+        String regista = row.field(2);
+        int annoUscita = Integer.parseInt(row.field(3).trim());
+        // Come prima della lettura in streaming: un genere vuoto resta "" (CSVWriter scrive null come campo vuoto)
+        String genere = row.field(4);
+        int valutazione = Integer.parseInt(row.field(5).trim());
+        ViewingStatus statoVisione = ViewingStatus.valueOf(row.field(6).trim());
+
+        return id.isEmpty()
+                ? new Movie(regista, statoVisione, valutazione, genere, annoUscita, titolo)
+                : new Movie(id, regista, statoVisione, valutazione, genere, annoUscita, titolo);
     }
 }
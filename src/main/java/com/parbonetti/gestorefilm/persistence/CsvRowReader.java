@@ -0,0 +1,130 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+// Legge un record CSV alla volta (RFC 4180, il formato scritto da CSVWriter: campi tra
+// virgolette, "" per le virgolette interne, a capo ammessi dentro le virgolette).
+// I caratteri dei campi finiscono sempre nello stesso buffer, riusato per ogni record:
+// le sole allocazioni sono le String dei campi richiesti con field()
+final class CsvRowReader implements Closeable {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    private final Reader in;
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+
+    private final StringBuilder chars = new StringBuilder(256);
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+
+    // Righe fisiche: un campo tra virgolette può contenere degli a capo
+    private long line;
+    private long recordLine;
+
+    // firstLine: numero della prima riga letta (un pezzo di file può iniziare a metà)
+    CsvRowReader(Reader in, long firstLine) {
+        this.in = in;
+        this.line = firstLine;
+    }
+
+    // Avanza al prossimo record e ritorna il numero di campi, -1 a fine file
+    int next() throws IOException {
+        chars.setLength(0);
+        fieldCount = 0;
+        recordLine = line;
+
+        int c = read();
+        if (c < 0) {
+            return -1;
+        }
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Virgolette non chiuse nel record alla riga " + recordLine);
+                }
+                if (c == QUOTE) {
+                    int following = read();
+                    if (following == QUOTE) {
+                        chars.append(QUOTE);
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    chars.append((char) c);
+                }
+            } else if (c == QUOTE) {
+                quoted = true;
+            } else if (c == SEPARATOR) {
+                endField();
+            } else if (c == '\n' || c < 0) {
+                if (c == '\n') {
+                    line++;
+                }
+                break;
+            } else if (c == '\r') {
+                int following = read();
+                if (following != '\n' && following >= 0) {
+                    position--; // "\r" da solo: a capo vecchio stile
+                }
+                line++;
+                break;
+            } else {
+                chars.append((char) c);
+            }
+            c = read();
+        }
+        endField();
+        return fieldCount;
+    }
+
+    String field(int index) {
+        int start = index == 0 ? 0 : fieldEnds[index - 1];
+        return chars.substring(start, fieldEnds[index]);
+    }
+
+    // Riga su cui inizia il record corrente, per i messaggi d'errore
+    long lineNumber() {
+        return recordLine;
+    }
+
+    // Riga vuota: un solo campo vuoto
+    boolean isBlank() {
+        return fieldCount == 1 && fieldEnds[0] == 0;
+    }
+
+    private void endField() {
+        if (fieldCount == fieldEnds.length) {
+            int[] grown = new int[fieldEnds.length * 2];
+            System.arraycopy(fieldEnds, 0, grown, 0, fieldCount);
+            fieldEnds = grown;
+        }
+        fieldEnds[fieldCount++] = chars.length();
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
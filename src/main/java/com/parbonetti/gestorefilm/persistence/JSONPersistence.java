@@ -1,21 +1,45 @@
 package com.parbonetti.gestorefilm.persistence;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
 
 import java.io.*;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+// Lettura e scrittura in streaming con JsonReader/JsonWriter, un film alla volta e con i campi
+// mappati a mano (niente reflection): la memoria usata non dipende dalla dimensione del file.
+// Il formato è lo stesso prodotto in passato da Gson, quindi i vecchi file restano leggibili
 public class JSONPersistence implements PersistenceStrategy {
+    private static final String ID = "id";
+    private static final String TITOLO = "titolo";
+    private static final String REGISTA = "regista";
+    private static final String ANNO_USCITA = "annoUscita";
+    private static final String GENERE = "genere";
+    private static final String VALUTAZIONE = "valutazione";
+    private static final String STATO_VISIONE = "statoVisione";
+
+    private final boolean prettyPrinting;
+    private final boolean checksum;
+
+    // Output compatto: circa la metà dei byte rispetto alla versione indentata
+    public JSONPersistence() {
+        this(false);
+    }
 
-    private final Gson gson;
+    public JSONPersistence(boolean prettyPrinting) {
+        this(prettyPrinting, false);
+    }
 
-    public JSONPersistence() {
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+    // checksum: CRC32 in coda al file, solo per i file interni (auto-save): il file non è più
+    // JSON valido per altri programmi
+    public JSONPersistence(boolean prettyPrinting, boolean checksum) {
+        this.prettyPrinting = prettyPrinting;
+        this.checksum = checksum;
     }
 
     @Override
@@ -31,9 +55,20 @@ public class JSONPersistence implements PersistenceStrategy {
             filepath += ".json";
         }
 
-        try (Writer writer = new FileWriter(filepath)) {
-            // Converti lista in JSON e scrivi su file
-            gson.toJson(movies, writer);
+        try {
+            // Scrivo un film alla volta su file temporaneo + rename atomico
+            SafeFiles.write(filepath, checksum, out -> {
+                JsonWriter writer = new JsonWriter(out);
+                if (prettyPrinting) {
+                    writer.setIndent("  ");
+                }
+                writer.beginArray();
+                for (Movie movie : movies) {
+                    writeMovie(writer, movie);
+                }
+                writer.endArray();
+                writer.flush();
+            });
             System.out.println("Salvataggio effettuato correttamente in: " + filepath);
 
         } catch (IOException e) {
@@ -44,6 +79,21 @@ public class JSONPersistence implements PersistenceStrategy {
 
     @Override
     public List<Movie> load(String filepath) {
+        List<Movie> movies = new ArrayList<>();
+        read(filepath, movies::add);
+        return movies;
+    }
+
+    @Override
+    public void load(String filepath, int batchSize, Consumer<List<Movie>> batches) {
+        MovieBatcher batcher = new MovieBatcher(batchSize, batches);
+        read(filepath, batcher);
+        batcher.flush();
+    }
+
+    // Passa a onMovie un film alla volta, nell'ordine del file; ritorna quanti ne ha letti.
+    // I film non validi vengono saltati e segnalati, senza interrompere il caricamento
+    public int read(String filepath, Consumer<Movie> onMovie) {
         if (filepath == null || filepath.trim().isEmpty()) {
             throw new IllegalArgumentException("il percorso non può essere null o vuoto");
         }
@@ -57,25 +107,121 @@ public class JSONPersistence implements PersistenceStrategy {
 
         if (!file.exists()) {
             System.out.println("File non trovato: " + filepath + ". Inizializzo una collezione vuota.");
-            return new ArrayList<>();
+            return 0;
         }
 
-        try (Reader reader = new FileReader(file)) {
-            // tipo per la deserializzazione
-            Type movieListType = new TypeToken<ArrayList<Movie>>(){}.getType();
-
-            List<Movie> movies = gson.fromJson(reader, movieListType);
+        try (JsonReader reader = new JsonReader(SafeFiles.openVerified(file))) {
+            JsonToken first;
+            try {
+                first = reader.peek();
+            } catch (EOFException e) {
+                return 0; // File vuoto
+            }
+            if (first == JsonToken.NULL) {
+                return 0;
+            }
 
-            if (movies == null) {
-                movies = new ArrayList<>();
+            int count = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                Movie movie = readMovie(reader);
+                if (movie != null) {
+                    onMovie.accept(movie);
+                    count++;
+                }
             }
+            reader.endArray();
 
-            System.out.println("Ho caricato " + movies.size() + " film da: " + filepath);
-            return movies;
+            System.out.println("Ho caricato " + count + " film da: " + filepath);
+            return count;
 
-        } catch (IOException e) {
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
             System.err.println("Error loading from JSON: " + e.getMessage());
             throw new RuntimeException("Non sono riuscito a caricare la collezione da JSON", e);
         }
     }
+
+    // Come Gson: i campi null non vengono scritti
+    private static void writeMovie(JsonWriter writer, Movie movie) throws IOException {
+        writer.beginObject();
+        writer.name(ID).value(movie.getId());
+        writer.name(TITOLO).value(movie.getTitolo());
+        writer.name(REGISTA).value(movie.getRegista());
+        writer.name(ANNO_USCITA).value(movie.getAnnoUscita());
+        if (movie.getGenere() != null) {
+            writer.name(GENERE).value(movie.getGenere());
+        }
+        writer.name(VALUTAZIONE).value(movie.getValutazione());
+        if (movie.getStatoVisione() != null) {
+            writer.name(STATO_VISIONE).value(movie.getStatoVisione().name());
+        }
+        writer.endObject();
+    }
+
+    private static Movie readMovie(JsonReader reader) throws IOException {
+        String id = null;
+        String titolo = null;
+        String regista = null;
+        int annoUscita = 0;
+        String genere = null;
+        int valutazione = 0;
+        ViewingStatus statoVisione = null;
+
+        String path = reader.getPath();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case ID:
+                    id = reader.nextString();
+                    break;
+                case TITOLO:
+                    titolo = reader.nextString();
+                    break;
+                case REGISTA:
+                    regista = reader.nextString();
+                    break;
+                case ANNO_USCITA:
+                    annoUscita = reader.nextInt();
+                    break;
+                case GENERE:
+                    genere = reader.nextString();
+                    break;
+                case VALUTAZIONE:
+                    valutazione = reader.nextInt();
+                    break;
+                case STATO_VISIONE:
+                    statoVisione = parseStatus(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue(); // Campi sconosciuti (es. versioni future)
+            }
+        }
+        reader.endObject();
+
+        try {
+            return id != null
+                    ? new Movie(id, regista, statoVisione, valutazione, genere, annoUscita, titolo)
+                    : new Movie(regista, statoVisione, valutazione, genere, annoUscita, titolo);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Film non valido ignorato (" + path + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static ViewingStatus parseStatus(String name) {
+        try {
+            return ViewingStatus.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Raggruppa i film letti uno alla volta in blocchi di batchSize; flush() passa l'ultimo blocco parziale
+class MovieBatcher implements Consumer<Movie> {
+    private final int batchSize;
+    private final Consumer<List<Movie>> batches;
+    private List<Movie> batch;
+
+    MovieBatcher(int batchSize, Consumer<List<Movie>> batches) {
+        this.batchSize = batchSize;
+        this.batches = batches;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void accept(Movie movie) {
+        batch.add(movie);
+        if (batch.size() == batchSize) {
+            flush();
+        }
+    }
+
+    void flush() {
+        if (!batch.isEmpty()) {
+            batches.accept(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Journal binario append-only delle modifiche alla collezione, da riapplicare sopra l'ultimo snapshot.
+// Ogni record è [tipo][lunghezza][dati][CRC32] e contiene lo stato completo del film (PUT)
+// o il solo id (DELETE), quindi riapplicarlo più volte dà lo stesso risultato.
+// Le stringhe sono [lunghezza in byte][UTF-8]: writeUTF non accetta più di 64 KB e il film
+// sarebbe già nella collezione quando il record fallisce.
+// All'apertura un record incompleto in coda (crash durante la scrittura) viene scartato; un record
+// danneggiato seguito da altri dati è corruzione: il file viene copiato in .corrupt prima di tagliarlo
+public class MovieJournal implements Closeable {
+    // 1 e 2 erano i record con writeUTF: non vengono più letti e il journal riparte da lì
+    private static final byte PUT = 3;
+    private static final byte DELETE = 4;
+    private static final int HEADER_SIZE = 5;
+    private static final int MAX_RECORD_SIZE = 1 << 26;
+
+    private final Path path;
+    private final FileChannel channel;
+
+    public MovieJournal(String filepath) throws IOException {
+        this.path = Paths.get(filepath);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // I nuovi record vanno dopo l'ultimo valido, non dopo un eventuale record troncato
+        long validLength = read(path, Long.MAX_VALUE, movie -> { }, id -> { });
+        long size = channel.size();
+        if (validLength < size) {
+            if (isTornTail(validLength, size)) {
+                System.err.println("Journal: scartato un record incompleto in coda (" + (size - validLength) + " byte)");
+            } else {
+                Path backup = Paths.get(filepath + ".corrupt");
+                Files.copy(path, backup, StandardCopyOption.REPLACE_EXISTING);
+                System.err.println("Journal danneggiato al byte " + validLength + " di " + size
+                        + ": record successivi ignorati, copia del file in " + backup);
+            }
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+    }
+
+    public static byte[] put(Movie movie) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            writeString(out, movie.getId());
+            writeString(out, movie.getTitolo());
+            writeString(out, movie.getRegista());
+            out.writeBoolean(movie.getGenere() != null);
+            if (movie.getGenere() != null) {
+                writeString(out, movie.getGenere());
+            }
+            out.writeShort(movie.getAnnoUscita());
+            out.writeByte(movie.getValutazione());
+            out.writeByte(movie.getStatoVisione().ordinal());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return record(PUT, payload.toByteArray());
+    }
+
+    public static byte[] delete(String id) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(48);
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            writeString(out, id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return record(DELETE, payload.toByteArray());
+    }
+
+    public void append(byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // fsync: chiamato a intervalli, non ad ogni record
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    // Dopo uno snapshot completo il journal riparte vuoto
+    public void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    // Legge i record validi in ordine; ritorna la lunghezza della parte valida
+    public static long read(String filepath, Consumer<Movie> onPut, Consumer<String> onDelete) throws IOException {
+        return read(Paths.get(filepath), Long.MAX_VALUE, onPut, onDelete);
+    }
+
+    // Solo i record che iniziano entro i primi maxLength byte (es. quelli delle sessioni precedenti)
+    public static long read(String filepath, long maxLength, Consumer<Movie> onPut, Consumer<String> onDelete)
+            throws IOException {
+        return read(Paths.get(filepath), maxLength, onPut, onDelete);
+    }
+
+    private static long read(Path path, long maxLength, Consumer<Movie> onPut, Consumer<String> onDelete)
+            throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (validLength < maxLength) {
+                byte[] payload;
+                byte type;
+                try {
+                    type = in.readByte();
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    int checksum = in.readInt();
+                    if (checksum != checksum(type, payload)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                if (type == PUT) {
+                    Movie movie = decodeMovie(record);
+                    if (movie != null) {
+                        onPut.accept(movie);
+                    }
+                } else if (type == DELETE) {
+                    onDelete.accept(readString(record));
+                } else {
+                    break;
+                }
+                validLength += HEADER_SIZE + payload.length + 4;
+            }
+        }
+        return validLength;
+    }
+
+    // Il primo record non valido arriva fino alla fine del file (o oltre): è l'ultima scrittura,
+    // interrotta. Altrimenti dopo di esso ci sono altri dati e il record è stato danneggiato
+    private boolean isTornTail(long offset, long size) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, offset + header.position()) < 0) {
+                return true;
+            }
+        }
+        header.flip();
+        header.get();
+        int length = header.getInt();
+        return length >= 0 && length <= MAX_RECORD_SIZE && offset + HEADER_SIZE + length + 4 >= size;
+    }
+
+    private static Movie decodeMovie(DataInputStream in) throws IOException {
+        String id = readString(in);
+        String titolo = readString(in);
+        String regista = readString(in);
+        String genere = in.readBoolean() ? readString(in) : null;
+        int anno = in.readShort();
+        int valutazione = in.readByte();
+        ViewingStatus stato = ViewingStatus.values()[in.readByte()];
+        try {
+            return new Movie(id, regista, stato, valutazione, genere, anno, titolo);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Journal: film non valido ignorato (" + id + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Stringa di " + length + " byte oltre la fine del record");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] record(byte type, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length + 4);
+        buffer.put(type).putInt(payload.length).put(payload).putInt(checksum(type, payload));
+        return buffer.array();
+    }
+
+    private static int checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
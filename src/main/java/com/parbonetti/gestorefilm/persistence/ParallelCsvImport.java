@@ -0,0 +1,238 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Import CSV parallelo: il file viene diviso in intervalli di byte e ogni pezzo è letto e
+// convertito in film (validazione compresa) da un thread del pool; i risultati arrivano a
+// onMovie nell'ordine del file.
+// I confini dei pezzi cadono solo su un a capo fuori dalle virgolette: in UTF-8 i byte '"' e '\n'
+// non compaiono dentro altri caratteri, quindi basta sapere quante virgolette ci sono prima
+// dell'inizio di ogni intervallo (pari = fuori da un campo), e quel conteggio si fa in parallelo.
+// Lo stesso passaggio calcola il CRC32 di ogni intervallo: combinati, verificano il checksum in coda
+// (se c'è) prima di convertire qualunque film, senza una lettura in più del file
+class ParallelCsvImport {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MIN_CHUNK_BYTES = 4L << 20;
+    // I film di un pezzo restano in memoria finché non tocca a lui: pezzi piccoli, memoria limitata
+    private static final long MAX_CHUNK_BYTES = 16L << 20;
+    // Più pezzi che thread: un pezzo lento non lascia gli altri core fermi
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int IN_FLIGHT_PER_THREAD = 2;
+
+    private final File file;
+    private final int parallelism;
+    private final long fixedChunkSize;
+
+    ParallelCsvImport(File file, int parallelism) {
+        this(file, parallelism, 0);
+    }
+
+    // Dimensione dei pezzi imposta (0 = scelta in base al file), per provare confini ovunque
+    ParallelCsvImport(File file, int parallelism, long chunkSize) {
+        this.file = file;
+        this.parallelism = parallelism;
+        this.fixedChunkSize = chunkSize;
+    }
+
+    int run(Consumer<Movie> onMovie, Consumer<String> onError) throws IOException {
+        Long expectedCrc = SafeFiles.trailerChecksum(file);
+        long length = expectedCrc != null ? SafeFiles.contentLength(file) : file.length();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            long chunkSize = fixedChunkSize > 0 ? fixedChunkSize : Math.min(MAX_CHUNK_BYTES,
+                    Math.max(MIN_CHUNK_BYTES, length / ((long) parallelism * CHUNKS_PER_THREAD) + 1));
+            int chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+
+            // 1) virgolette, a capo e CRC32 di ogni intervallo
+            List<ForkJoinTask<long[]>> counting = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                long from = i * chunkSize;
+                long to = Math.min(from + chunkSize, length);
+                counting.add(pool.submit(() -> count(channel, from, to)));
+            }
+
+            // 2) inizio del primo record di ogni intervallo, con il numero della sua riga
+            List<ForkJoinTask<long[]>> starting = new ArrayList<>(chunkCount);
+            long quotes = 0;
+            long lines = 1;
+            long crc = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                if (i > 0) {
+                    long from = i * chunkSize;
+                    boolean inQuotes = quotes % 2 != 0;
+                    long line = lines;
+                    starting.add(pool.submit(() -> recordStart(channel, from, length, inQuotes, line)));
+                }
+                long[] counts = join(counting.get(i));
+                quotes += counts[0];
+                lines += counts[1];
+                crc = SafeFiles.combineCrc(crc, counts[2], Math.min(chunkSize, length - i * chunkSize));
+            }
+            if (expectedCrc != null) {
+                SafeFiles.checkCrc(crc, expectedCrc, file.getPath());
+            }
+            long[][] starts = new long[chunkCount + 1][];
+            starts[0] = new long[] {0, 1};
+            for (int i = 1; i < chunkCount; i++) {
+                starts[i] = join(starting.get(i - 1));
+            }
+            starts[chunkCount] = new long[] {length, lines};
+
+            // 3) conversione dei pezzi; si raccolgono in ordine mentre gli altri proseguono.
+            // Al più IN_FLIGHT_PER_THREAD pezzi per thread in memoria in attesa di essere consegnati
+            int window = parallelism * IN_FLIGHT_PER_THREAD;
+            List<ForkJoinTask<Chunk>> parsing = new ArrayList<>(chunkCount);
+            int total = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                while (parsing.size() < chunkCount && parsing.size() < i + window) {
+                    int next = parsing.size();
+                    long[] start = starts[next];
+                    long end = starts[next + 1][0];
+                    boolean header = next == 0;
+                    parsing.add(pool.submit(() -> parse(channel, start[0], end, start[1], header)));
+                }
+                Chunk chunk = join(parsing.get(i));
+                parsing.set(i, null);
+                chunk.errors.forEach(onError);
+                chunk.movies.forEach(onMovie);
+                total += chunk.movies.size();
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // [virgolette, a capo, CRC32] dell'intervallo
+    private static long[] count(FileChannel channel, long from, long to) {
+        long quotes = 0;
+        long newlines = 0;
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (long position = from; position < to; ) {
+            int read = read(channel, buffer, position, to);
+            byte[] bytes = buffer.array();
+            crc.update(bytes, 0, read);
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '"') {
+                    quotes++;
+                } else if (bytes[i] == '\n') {
+                    newlines++;
+                }
+            }
+            position += read;
+        }
+        return new long[] {quotes, newlines, crc.getValue()};
+    }
+
+    // [posizione, riga] del primo record che inizia da from in poi (length se nessuno)
+    private static long[] recordStart(FileChannel channel, long from, long length, boolean inQuotes, long line) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (long position = from; position < length; ) {
+            int read = read(channel, buffer, position, length);
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '"') {
+                    inQuotes = !inQuotes;
+                } else if (bytes[i] == '\n') {
+                    line++;
+                    if (!inQuotes) {
+                        return new long[] {position + i + 1, line};
+                    }
+                }
+            }
+            position += read;
+        }
+        return new long[] {length, line};
+    }
+
+    private static Chunk parse(FileChannel channel, long from, long to, long firstLine, boolean header) {
+        Chunk chunk = new Chunk();
+        if (from >= to) {
+            return chunk;
+        }
+        InputStream in = new RangeInputStream(channel, from, to);
+        try (CsvRowReader reader = new CsvRowReader(new InputStreamReader(in, StandardCharsets.UTF_8), firstLine)) {
+            if (header && reader.next() < 0) {
+                return chunk;
+            }
+            CSVPersistence.parseRows(reader, chunk.movies::add, chunk.errors::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk;
+    }
+
+    private static int read(FileChannel channel, ByteBuffer buffer, long position, long limit) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+        try {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Il file è stato troncato durante la lettura");
+            }
+            return read;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class Chunk {
+        final List<Movie> movies = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+    }
+
+    // Legge l'intervallo [from, to) con letture posizionali: più thread sullo stesso canale
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.position = from;
+            this.end = to;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+}
@@ -1,10 +1,28 @@
 package com.parbonetti.gestorefilm.persistence;
 
 import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieSource;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface PersistenceStrategy {
     void save(List<Movie> movies, String filepath);
     List<Movie> load(String filepath);
+
+    // Caricamento progressivo: i film arrivano a blocchi di al più batchSize.
+    // Di default carica tutto e poi divide; i formati che lo permettono leggono in streaming
+    default void load(String filepath, int batchSize, Consumer<List<Movie>> batches) {
+        List<Movie> movies = load(filepath);
+        for (int from = 0; from < movies.size(); from += batchSize) {
+            batches.accept(new ArrayList<>(movies.subList(from, Math.min(from + batchSize, movies.size()))));
+        }
+    }
+
+    // Accesso ai film direttamente nel file, senza caricarli tutti; null se il formato
+    // non lo permette (o il file non esiste) e va usato load()
+    default MovieSource open(String filepath) {
+        return null;
+    }
 }
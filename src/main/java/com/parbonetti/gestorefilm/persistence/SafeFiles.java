@@ -0,0 +1,270 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Scrittura atomica dei file salvati: il contenuto va in un file temporaneo accanto a quello finale,
+// viene forzato su disco e poi rinominato, quindi un crash lascia intatta la copia precedente.
+// I file interni (auto-save, formato binario) hanno in coda una riga "#crc32:xxxxxxxx" con il CRC32
+// del contenuto, verificata al caricamento. JSON e CSV salvati dall'utente non ce l'hanno, così
+// restano leggibili da altri programmi; i file di testo senza riga si caricano come prima
+final class SafeFiles {
+    private static final String TRAILER_PREFIX = "\n#crc32:";
+    private static final int TRAILER_LENGTH = TRAILER_PREFIX.length() + 9;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    interface Content {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    interface BinaryContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private SafeFiles() {
+    }
+
+    static void write(String filepath, boolean checksum, Content content) throws IOException {
+        writeAtomically(filepath, checksum, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            content.writeTo(writer);
+            writer.flush();
+        });
+    }
+
+    static void writeBinary(String filepath, BinaryContent content) throws IOException {
+        writeAtomically(filepath, true, content);
+    }
+
+    private static void writeAtomically(String filepath, boolean checksum, BinaryContent content) throws IOException {
+        Path target = Paths.get(filepath);
+        Path temp = Paths.get(filepath + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                CRC32 crc = new CRC32();
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                CheckedOutputStream checked = new CheckedOutputStream(out, crc);
+                content.writeTo(checked);
+                checked.flush();
+                // Il trailer è fuori dal checksum
+                if (checksum) {
+                    out.write(trailer(crc.getValue()).getBytes(StandardCharsets.US_ASCII));
+                }
+                out.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Verifica il checksum (se presente) prima di restituire il contenuto, così un file
+    // danneggiato viene rifiutato senza aver caricato nulla
+    static Reader openVerified(File file) throws IOException {
+        long contentLength = verify(file);
+        InputStream in = new ContentInputStream(new FileInputStream(file), contentLength);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    // Verifica il checksum e ritorna la lunghezza del contenuto, trailer escluso
+    static long verify(File file) throws IOException {
+        Long expected = trailerChecksum(file);
+        if (expected == null) {
+            return file.length();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long contentLength = raf.length() - TRAILER_LENGTH;
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            raf.seek(0);
+            long remaining = contentLength;
+            while (remaining > 0) {
+                int read = raf.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException(file.getPath());
+                }
+                crc.update(buffer, 0, read);
+                remaining -= read;
+            }
+            checkCrc(crc.getValue(), expected, file.getPath());
+            return contentLength;
+        }
+    }
+
+    // Checksum scritto in coda al file, letto senza toccare il contenuto; null se non c'è
+    static Long trailerChecksum(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length < TRAILER_LENGTH) {
+                return null;
+            }
+            byte[] tail = new byte[TRAILER_LENGTH];
+            raf.seek(length - TRAILER_LENGTH);
+            raf.readFully(tail);
+            return parseTrailer(new String(tail, StandardCharsets.US_ASCII));
+        }
+    }
+
+    // Lunghezza del contenuto di un file con trailerChecksum() non null
+    static long contentLength(File file) {
+        return file.length() - TRAILER_LENGTH;
+    }
+
+    static void checkCrc(long actual, long expected, String name) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Checksum non valido, file danneggiato o incompleto: " + name);
+        }
+    }
+
+    // CRC32 di A seguito da B, dati i CRC32 dei due pezzi e la lunghezza di B (crc32_combine di zlib):
+    // chi legge un file a pezzi in parallelo lo verifica senza rileggerlo
+    static long combineCrc(long crcA, long crcB, long lengthB) {
+        if (lengthB <= 0) {
+            return crcA;
+        }
+        // Operatore "un bit di zeri in più" sul CRC, poi elevato al quadrato per 2, 4, 8... bit
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = 0xedb88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd); // 2 bit
+        gf2MatrixSquare(odd, even); // 4 bit
+        long crc = crcA;
+        // Il primo quadrato dà l'operatore per un byte di zeri
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((lengthB & 1) != 0) {
+                crc = gf2MatrixTimes(even, crc);
+            }
+            lengthB >>= 1;
+            if (lengthB == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((lengthB & 1) != 0) {
+                crc = gf2MatrixTimes(odd, crc);
+            }
+            lengthB >>= 1;
+        } while (lengthB != 0);
+        return crc ^ crcB;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    // Come verify(File), sul file binario già mappato in memoria: il CRC si calcola senza copiarlo.
+    // Qui il trailer è obbligatorio, il formato binario l'ha sempre avuto: senza, il file è troncato
+    static int verify(ByteBuffer file, String name) throws IOException {
+        int length = file.limit();
+        Long expected = null;
+        if (length >= TRAILER_LENGTH) {
+            byte[] tail = new byte[TRAILER_LENGTH];
+            file.get(length - TRAILER_LENGTH, tail);
+            expected = parseTrailer(new String(tail, StandardCharsets.US_ASCII));
+        }
+        if (expected == null) {
+            throw new IOException("Checksum mancante, file danneggiato o incompleto: " + name);
+        }
+
+        int contentLength = length - TRAILER_LENGTH;
+        CRC32 crc = new CRC32();
+        crc.update(file.duplicate().position(0).limit(contentLength));
+        checkCrc(crc.getValue(), expected, name);
+        return contentLength;
+    }
+
+    private static String trailer(long checksum) {
+        return TRAILER_PREFIX + String.format("%08x", checksum) + "\n";
+    }
+
+    private static Long parseTrailer(String tail) {
+        if (!tail.startsWith(TRAILER_PREFIX) || !tail.endsWith("\n")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(tail.substring(TRAILER_PREFIX.length(), TRAILER_LENGTH - 1), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Legge solo il contenuto, senza il trailer
+    private static class ContentInputStream extends FilterInputStream {
+        private long remaining;
+
+        ContentInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
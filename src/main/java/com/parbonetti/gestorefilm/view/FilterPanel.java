@@ -1,5 +1,6 @@
 package com.parbonetti.gestorefilm.view;
 
+import com.parbonetti.gestorefilm.AppConfiguration;
 import com.parbonetti.gestorefilm.model.ViewingStatus;
 
 import javax.swing.*;
@@ -7,9 +8,12 @@ import java.awt.*;
 
 public class FilterPanel extends JPanel {
     private JTextField searchField;
+    private JCheckBox fuzzyCheckBox;
     private JComboBox<String> genreComboBox;
     private JComboBox<String> statusComboBox;
     private JComboBox<String> ratingComboBox;
+    private JSpinner minYearSpinner;
+    private JSpinner maxYearSpinner;
     private JButton clearFilterButton;
 
     public FilterPanel() {
@@ -22,6 +26,9 @@ public class FilterPanel extends JPanel {
         searchField = new JTextField(20);
         searchField.setToolTipText("Cerca per titolo o regista");
 
+        fuzzyCheckBox = new JCheckBox("Tollerante");
+        fuzzyCheckBox.setToolTipText("Tollera errori di battitura e ordina i risultati per pertinenza");
+
         // ComboBox genere
         genreComboBox = new JComboBox<>(new String[]{
                 "Tutti",
@@ -60,6 +67,10 @@ public class FilterPanel extends JPanel {
         });
         ratingComboBox.setSelectedItem("Tutte");
 
+        // Intervallo anni: agli estremi il filtro non è attivo
+        minYearSpinner = createYearSpinner(AppConfiguration.MIN_YEAR);
+        maxYearSpinner = createYearSpinner(AppConfiguration.MAX_YEAR);
+
         // Bottoni
         clearFilterButton = new JButton("Pulisci");
     }
@@ -71,6 +82,7 @@ public class FilterPanel extends JPanel {
         // Label e campo ricerca
         add(new JLabel("Cerca:"));
         add(searchField);
+        add(fuzzyCheckBox);
 
         // Label e ComboBox genere
         add(new JLabel("Genere:"));
@@ -83,10 +95,26 @@ public class FilterPanel extends JPanel {
         add(new JLabel("Valutazione:"));
         add(ratingComboBox);
 
+        add(new JLabel("Anno da:"));
+        add(minYearSpinner);
+        add(new JLabel("a:"));
+        add(maxYearSpinner);
+
         // Bottoni
         add(clearFilterButton);
     }
 
+    private JSpinner createYearSpinner(int value) {
+        JSpinner spinner = new JSpinner(new SpinnerNumberModel(
+                value,
+                AppConfiguration.MIN_YEAR,
+                AppConfiguration.MAX_YEAR,
+                1
+        ));
+        spinner.setEditor(new JSpinner.NumberEditor(spinner, "#"));
+        return spinner;
+    }
+
     public int getSelectedMinRating() {
         String selected = (String) ratingComboBox.getSelectedItem();
 
@@ -96,6 +124,26 @@ public class FilterPanel extends JPanel {
         return Character.getNumericValue(selected.charAt(0));
     }
 
+    // 0 = nessun limite inferiore
+    public int getSelectedMinYear() {
+        int year = (Integer) minYearSpinner.getValue();
+        return year > AppConfiguration.MIN_YEAR ? year : 0;
+    }
+
+    // 0 = nessun limite superiore
+    public int getSelectedMaxYear() {
+        int year = (Integer) maxYearSpinner.getValue();
+        return year < AppConfiguration.MAX_YEAR ? year : 0;
+    }
+
+    public JSpinner getMinYearSpinner() {
+        return minYearSpinner;
+    }
+
+    public JSpinner getMaxYearSpinner() {
+        return maxYearSpinner;
+    }
+
     public JComboBox<String> getRatingComboBox() {
         return ratingComboBox;
     }
@@ -146,11 +194,41 @@ public class FilterPanel extends JPanel {
         return searchField;
     }
 
+    public JCheckBox getFuzzyCheckBox() {
+        return fuzzyCheckBox;
+    }
+
+    public boolean isFuzzySearch() {
+        return fuzzyCheckBox.isSelected();
+    }
+
     public void clearFilters() {
         searchField.setText("");
         genreComboBox.setSelectedItem("Tutti");
         statusComboBox.setSelectedItem("Tutti");
         ratingComboBox.setSelectedItem("Tutte");
+        minYearSpinner.setValue(AppConfiguration.MIN_YEAR);
+        maxYearSpinner.setValue(AppConfiguration.MAX_YEAR);
+    }
+
+    // Inserisce un genere mantenendo l'ordine alfabetico dopo "Tutti"
+    public void addGenre(String genre) {
+        int position = 1;
+        while (position < genreComboBox.getItemCount() &&
+                genreComboBox.getItemAt(position).compareTo(genre) < 0) {
+            position++;
+        }
+        if (position < genreComboBox.getItemCount() && genreComboBox.getItemAt(position).equals(genre)) {
+            return;
+        }
+        genreComboBox.insertItemAt(genre, position);
+    }
+
+    public void removeGenre(String genre) {
+        if (genre.equals(getSelectedGenre())) {
+            genreComboBox.setSelectedItem("Tutti");
+        }
+        genreComboBox.removeItem(genre);
     }
 
     public void updateGenres(java.util.List<String> genres) {
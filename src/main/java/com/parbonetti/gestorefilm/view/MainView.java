@@ -1,16 +1,18 @@
 package com.parbonetti.gestorefilm.view;
 
 import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.SortKey;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
 
 public class MainView extends JFrame {
     private JTable movieTable;
-    private DefaultTableModel tableModel;
+    private MovieTableModel tableModel;
+    private Movie selectedMovie;
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
@@ -19,9 +21,13 @@ public class MainView extends JFrame {
     private JButton loadButton;
     private FilterPanel filterPanel;
     private JComboBox<String> formatComboBox;
+    private JLabel statusLabel;
 
-    private static final String[] COLUMN_NAMES = {
-            "ID", "Titolo", "Regista", "Anno", "Genere", "Valutazione", "Stato"
+    private static final String[] COLUMN_NAMES = MovieTableModel.getColumnNames();
+
+    // Ordinamento associato ad ogni colonna (l'ID nascosto non è ordinabile)
+    private static final SortKey[] COLUMN_SORT_KEYS = {
+            null, SortKey.TITOLO, SortKey.REGISTA, SortKey.ANNO, SortKey.GENERE, SortKey.VALUTAZIONE, SortKey.STATO
     };
 
     public MainView() {
@@ -32,15 +38,20 @@ public class MainView extends JFrame {
 
     private void initializeComponents() {
         // Inizializza tabella
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Tabella non editabile direttamente
-            }
-        };
+        tableModel = new MovieTableModel();
         movieTable = new JTable(tableModel);
         movieTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        movieTable.setAutoCreateRowSorter(true);
+        // Ricorda il film selezionato per ripristinarlo dopo un refresh completo
+        movieTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                int selectedRow = movieTable.getSelectedRow();
+                selectedMovie = selectedRow >= 0
+                        ? tableModel.getMovieAt(movieTable.convertRowIndexToModel(selectedRow))
+                        : null;
+            }
+        });
+        // L'ordinamento lo fornisce la collezione: niente RowSorter che riordina ad ogni refresh
+        movieTable.getTableHeader().setReorderingAllowed(false);
 
         movieTable.getColumnModel().getColumn(0).setMinWidth(0);
         movieTable.getColumnModel().getColumn(0).setMaxWidth(0);
@@ -51,6 +62,8 @@ public class MainView extends JFrame {
         movieTable.getColumnModel().getColumn(4).setPreferredWidth(100); // Genere
         movieTable.getColumnModel().getColumn(5).setPreferredWidth(80);  // Valutazione
         movieTable.getColumnModel().getColumn(6).setPreferredWidth(100); // Stato
+        movieTable.getColumnModel().getColumn(5).setCellRenderer(new RatingCellRenderer());
+        movieTable.getColumnModel().getColumn(6).setCellRenderer(new StatusCellRenderer());
 
         // Inizializza bottoni
         addButton = new JButton("Aggiungi Film");
@@ -63,8 +76,11 @@ public class MainView extends JFrame {
         undoButton.setToolTipText("Annulla l'ultima operazione");
 
         filterPanel = new FilterPanel();
-        formatComboBox = new JComboBox<>(new String[]{"JSON", "CSV"});
+        formatComboBox = new JComboBox<>(new String[]{"JSON", "CSV", "Binario"});
         formatComboBox.setSelectedItem("JSON");
+
+        // Stato delle operazioni lunghe (es. caricamento all'avvio)
+        statusLabel = new JLabel(" ");
     }
 
     private void layoutComponents() {
@@ -78,6 +94,8 @@ public class MainView extends JFrame {
 
         // Centro - Tabella con scroll
         JScrollPane scrollPane = new JScrollPane(movieTable);
+        // Ad ogni scroll si preparano le pagine vicine a quelle visibili
+        scrollPane.getViewport().addChangeListener(e -> prefetchVisibleRows());
         scrollPane.setBorder(BorderFactory.createTitledBorder("Collezione Film"));
         add(scrollPane, BorderLayout.CENTER);
 
@@ -93,6 +111,7 @@ public class MainView extends JFrame {
         actionPanel.add(new JSeparator(SwingConstants.VERTICAL));  // Separatore visivo
         actionPanel.add(undoButton);
         bottomPanel.add(actionPanel, BorderLayout.WEST);
+        bottomPanel.add(statusLabel, BorderLayout.CENTER);
 
         // Formato e salvataggio
         JPanel savePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -114,34 +133,109 @@ public class MainView extends JFrame {
     }
 
     public void showMovies(List<Movie> movies) {
-        // Pulisci tabella
-        tableModel.setRowCount(0);
-
-        // Aggiungi ogni film come riga
-        if (movies != null) {
-            for (Movie movie : movies) {
-                Object[] row = {
-                        movie.getId(),
-                        movie.getTitolo(),
-                        movie.getRegista(),
-                        movie.getAnnoUscita(),
-                        movie.getGenere(),
-                        "★".repeat(movie.getValutazione()),
-                        movie.getStatoVisione().getDisplayName()
-                };
-                tableModel.addRow(row);
+        Movie previousSelection = selectedMovie;
+
+        // Nessuna copia: la tabella legge le righe visibili direttamente dalla lista
+        tableModel.setMovies(movies);
+
+        // Con un Cursor la posizione si ricava dall'indice, senza scorrere tutte le righe
+        if (previousSelection != null && movies != null) {
+            int row = movies.indexOf(previousSelection);
+            if (row >= 0) {
+                selectRow(row);
             }
         }
     }
+
+    // Aggiornamenti puntuali: movies è la nuova lista, uguale alla precedente salvo la riga position
+    public void movieInserted(int position, List<Movie> movies) {
+        tableModel.rowInserted(movies, position);
+    }
+
+    public void moviesInserted(int fromPosition, int toPosition, List<Movie> movies) {
+        tableModel.rowsInserted(movies, fromPosition, toPosition);
+    }
+
+    public void movieUpdated(int position, List<Movie> movies) {
+        tableModel.rowUpdated(movies, position);
+    }
+
+    public void movieRemoved(int position, List<Movie> movies) {
+        tableModel.rowRemoved(movies, position);
+    }
+
+    // Film spostato da fromPosition a toPosition (ordinamento): cambiano le righe in mezzo.
+    // La selezione segue il film che mostrava
+    public void movieMoved(int fromPosition, int toPosition, List<Movie> movies) {
+        int selected = movieTable.getSelectedRow();
+        tableModel.rowsUpdated(movies, Math.min(fromPosition, toPosition), Math.max(fromPosition, toPosition));
+        if (selected == fromPosition) {
+            selectRow(toPosition);
+        } else if (fromPosition < selected && selected <= toPosition) {
+            selectRow(selected - 1);
+        } else if (toPosition <= selected && selected < fromPosition) {
+            selectRow(selected + 1);
+        }
+    }
+
+    // Stesse righe di prima in una nuova lista (la precedente non è più leggibile)
+    public void replaceMovies(List<Movie> movies) {
+        tableModel.replaceMovies(movies);
+    }
+
+    private void prefetchVisibleRows() {
+        Rectangle visible = movieTable.getVisibleRect();
+        int first = movieTable.rowAtPoint(visible.getLocation());
+        if (first < 0) {
+            return;
+        }
+        int last = movieTable.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+        if (last < 0) {
+            last = movieTable.getRowCount() - 1;
+        }
+        tableModel.prefetch(first, last);
+    }
+
+    private void selectRow(int modelRow) {
+        int viewRow = movieTable.convertRowIndexToView(modelRow);
+        movieTable.setRowSelectionInterval(viewRow, viewRow);
+        movieTable.scrollRectToVisible(movieTable.getCellRect(viewRow, 0, true));
+    }
+
+    // Criterio di ordinamento della colonna sotto il punto dell'intestazione (null se non ordinabile)
+    public SortKey getSortKeyAt(Point point) {
+        int column = movieTable.columnAtPoint(point);
+        if (column < 0) {
+            return null;
+        }
+        return COLUMN_SORT_KEYS[movieTable.convertColumnIndexToModel(column)];
+    }
+
+    public void showSortIndicator(SortKey sortKey, boolean descending) {
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            String name = COLUMN_NAMES[i];
+            if (sortKey != null && COLUMN_SORT_KEYS[i] == sortKey) {
+                name += descending ? " ▼" : " ▲";
+            }
+            movieTable.getColumnModel().getColumn(i).setHeaderValue(name);
+        }
+        movieTable.getTableHeader().repaint();
+    }
+
     public String getSelectedMovieId() {
         int selectedRow = movieTable.getSelectedRow();
         if (selectedRow >= 0) {
             int modelRow = movieTable.convertRowIndexToModel(selectedRow);
-            return (String) tableModel.getValueAt(modelRow, 0);
+            return tableModel.getMovieAt(modelRow).getId();
         }
         return null;
     }
 
+    // Messaggio non bloccante nella barra inferiore; null lo nasconde
+    public void showStatus(String message) {
+        statusLabel.setText(message != null ? message : " ");
+    }
+
     public void showMessage(String message) {
         JOptionPane.showMessageDialog(this, message, "Informazione",
                 JOptionPane.INFORMATION_MESSAGE);
@@ -182,6 +276,10 @@ public class MainView extends JFrame {
         return loadButton;
     }
 
+    public JTableHeader getTableHeader() {
+        return movieTable.getTableHeader();
+    }
+
     public FilterPanel getFilterPanel() {
         return filterPanel;
     }
@@ -205,6 +303,9 @@ public class MainView extends JFrame {
         } else if (format.equals("CSV")) {
             fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
                     "File CSV (*.csv)", "csv"));
+        } else if (format.equals("Binario")) {
+            fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+                    "File binario (*.gfb)", "gfb"));
         }
 
         fileChooser.setSelectedFile(new java.io.File(defaultFilename));
@@ -214,7 +315,7 @@ public class MainView extends JFrame {
         if (result == JFileChooser.APPROVE_OPTION) {
             String filepath = fileChooser.getSelectedFile().getAbsolutePath();
 
-            if (filepath.endsWith(".json") || filepath.endsWith(".csv")) {
+            if (filepath.endsWith(".json") || filepath.endsWith(".csv") || filepath.endsWith(".gfb")) {
                 filepath = filepath.substring(0, filepath.lastIndexOf('.'));
             }
 
@@ -235,6 +336,9 @@ public class MainView extends JFrame {
         } else if (format.equals("CSV")) {
             fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
                     "File CSV (*.csv)", "csv"));
+        } else if (format.equals("Binario")) {
+            fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+                    "File binario (*.gfb)", "gfb"));
         }
 
         int result = fileChooser.showOpenDialog(this);
@@ -242,7 +346,7 @@ public class MainView extends JFrame {
         if (result == JFileChooser.APPROVE_OPTION) {
             String filepath = fileChooser.getSelectedFile().getAbsolutePath();
 
-            if (filepath.endsWith(".json") || filepath.endsWith(".csv")) {
+            if (filepath.endsWith(".json") || filepath.endsWith(".csv") || filepath.endsWith(".gfb")) {
                 filepath = filepath.substring(0, filepath.lastIndexOf('.'));
             }
 
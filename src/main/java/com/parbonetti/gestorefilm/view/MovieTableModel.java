@@ -0,0 +1,147 @@
+package com.parbonetti.gestorefilm.view;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieCollection;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Modello della tabella che legge direttamente la lista dei film:
+// i valori delle celle sono calcolati solo per le righe disegnate.
+// Valutazione e stato restano valori semplici, la resa grafica è dei renderer
+class MovieTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {
+            "ID", "Titolo", "Regista", "Anno", "Genere", "Valutazione", "Stato"
+    };
+
+    // Carica in anticipo le pagine vicine a quelle visibili
+    private static final ExecutorService PREFETCH = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "prefetch-tabella");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private List<Movie> movies = Collections.emptyList();
+
+    void setMovies(List<Movie> movies) {
+        this.movies = movies != null ? movies : Collections.emptyList();
+        // Un solo evento per refresh, senza ricreare le colonne
+        fireTableDataChanged();
+    }
+
+    // Aggiornamenti di una sola riga: la nuova lista differisce dalla precedente
+    // solo per quella riga, quindi basta l'evento puntuale
+    void rowInserted(List<Movie> movies, int row) {
+        this.movies = movies;
+        fireTableRowsInserted(row, row);
+    }
+
+    void rowsInserted(List<Movie> movies, int firstRow, int lastRow) {
+        this.movies = movies;
+        fireTableRowsInserted(firstRow, lastRow);
+    }
+
+    void rowUpdated(List<Movie> movies, int row) {
+        this.movies = movies;
+        fireTableRowsUpdated(row, row);
+    }
+
+    void rowRemoved(List<Movie> movies, int row) {
+        this.movies = movies;
+        fireTableRowsDeleted(row, row);
+    }
+
+    void rowsUpdated(List<Movie> movies, int firstRow, int lastRow) {
+        this.movies = movies;
+        fireTableRowsUpdated(firstRow, lastRow);
+    }
+
+    // Nessun evento: le righe sono le stesse
+    void replaceMovies(List<Movie> movies) {
+        this.movies = movies;
+    }
+
+    // Con un risultato a pagine, prepara in background la pagina prima e quella dopo le righe visibili
+    void prefetch(int firstRow, int lastRow) {
+        if (!(movies instanceof MovieCollection.Cursor)) {
+            return;
+        }
+        MovieCollection.Cursor cursor = (MovieCollection.Cursor) movies;
+        PREFETCH.execute(() -> {
+            try {
+                cursor.prefetch(firstRow - cursor.getPageSize(), lastRow + cursor.getPageSize());
+            } catch (ConcurrentModificationException e) {
+                // Risultato superato da una modifica: la tabella ne mostra già uno nuovo
+            }
+        });
+    }
+
+    Movie getMovieAt(int row) {
+        return movies.get(row);
+    }
+
+    static String[] getColumnNames() {
+        return COLUMN_NAMES.clone();
+    }
+
+    @Override
+    public int getRowCount() {
+        return movies.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case 3:
+            case 5:
+                return Integer.class;
+            case 6:
+                return ViewingStatus.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Tabella non editabile direttamente
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Movie movie = movies.get(row);
+        switch (column) {
+            case 0:
+                return movie.getId();
+            case 1:
+                return movie.getTitolo();
+            case 2:
+                return movie.getRegista();
+            case 3:
+                return movie.getAnnoUscita();
+            case 4:
+                return movie.getGenere();
+            case 5:
+                return movie.getValutazione();
+            case 6:
+                return movie.getStatoVisione();
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.parbonetti.gestorefilm.view;
+
+import javax.swing.table.DefaultTableCellRenderer;
+
+// Disegna la valutazione (Integer nel modello) come stelle, da stringhe precalcolate:
+// lo stesso componente viene riusato per tutte le celle, senza allocazioni durante lo scroll
+class RatingCellRenderer extends DefaultTableCellRenderer {
+    private static final String[] STARS = new String[6];
+
+    static {
+        for (int i = 0; i < STARS.length; i++) {
+            STARS[i] = "★".repeat(i);
+        }
+    }
+
+    @Override
+    protected void setValue(Object value) {
+        setText(value instanceof Integer ? stars((Integer) value) : "");
+    }
+
+    private static String stars(int valutazione) {
+        if (valutazione >= 0 && valutazione < STARS.length) {
+            return STARS[valutazione];
+        }
+        // Valori fuori scala da file importati
+        return "★".repeat(Math.max(valutazione, 0));
+    }
+}
@@ -0,0 +1,13 @@
+package com.parbonetti.gestorefilm.view;
+
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+
+import javax.swing.table.DefaultTableCellRenderer;
+
+// Mostra il nome dello stato (enum nel modello): la stringa è una costante dell'enum
+class StatusCellRenderer extends DefaultTableCellRenderer {
+    @Override
+    protected void setValue(Object value) {
+        setText(value instanceof ViewingStatus ? ((ViewingStatus) value).getDisplayName() : "");
+    }
+}
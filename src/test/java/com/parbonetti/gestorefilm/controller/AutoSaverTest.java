@@ -0,0 +1,202 @@
+package com.parbonetti.gestorefilm.controller;
+
+import com.parbonetti.gestorefilm.AppConfiguration;
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieCollection;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+import com.parbonetti.gestorefilm.persistence.JSONPersistence;
+import com.parbonetti.gestorefilm.persistence.MovieJournal;
+import org.junit.jupiter.api.*;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AutoSaverTest {
+    private Path dir;
+    private String filename;
+    private MovieCollection collection;
+    private AutoSaver autoSaver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("autosave");
+        filename = dir.resolve("autosave").toString();
+        collection = MovieCollection.getInstance();
+        clearCollection();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (autoSaver != null) {
+            collection.removeChangeListener(autoSaver);
+        }
+        clearCollection();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // ========== REPLAY TESTS ==========
+
+    @Test
+    @DisplayName("replay dovrebbe riapplicare il journal anche su film già presenti o già rimossi")
+    void testReplayIsIdempotent() throws Exception {
+        Movie inception = new Movie("Nolan", ViewingStatus.DA_VEDERE, 4, "Sci-Fi", 2010, "Inception");
+        Movie tenet = new Movie("Nolan", ViewingStatus.VISTO, 3, "Sci-Fi", 2020, "Tenet");
+        collection.addMovie(inception);
+        Movie watched = new Movie(inception);
+        watched.setStatoVisione(ViewingStatus.VISTO);
+        // Journal della sessione precedente: PUT di un film che c'è già, DELETE di un id che non c'è,
+        // e lo stesso PUT due volte
+        try (MovieJournal journal = new MovieJournal(filename + ".journal")) {
+            journal.append(MovieJournal.put(watched));
+            journal.append(MovieJournal.delete("id-mai-esistito"));
+            journal.append(MovieJournal.put(tenet));
+            journal.append(MovieJournal.put(tenet));
+        }
+
+        startAutoSaver();
+        autoSaver.replay();
+        awaitReplay();
+
+        assertEquals(2, collection.getMovieCount(), "Tenet dovrebbe essere aggiunto una volta sola");
+        assertEquals(ViewingStatus.VISTO, collection.getMovie(inception.getId()).getStatoVisione(),
+                "Il PUT di un film presente dovrebbe aggiornarlo");
+        assertEquals("Tenet", collection.getMovie(tenet.getId()).getTitolo());
+    }
+
+    @Test
+    @DisplayName("replay non dovrebbe sovrascrivere i film già modificati in questa sessione")
+    void testReplaySkipsMoviesChangedInSession() throws Exception {
+        Movie inception = new Movie("Nolan", ViewingStatus.DA_VEDERE, 4, "Sci-Fi", 2010, "Inception");
+        collection.addMovie(inception);
+        Movie older = new Movie(inception);
+        older.setValutazione(1);
+        try (MovieJournal journal = new MovieJournal(filename + ".journal")) {
+            journal.append(MovieJournal.put(older));
+        }
+
+        startAutoSaver();
+        // Modifica fatta mentre lo snapshot era ancora in caricamento
+        Movie newer = new Movie(inception);
+        newer.setValutazione(5);
+        collection.updateMovie(newer);
+        autoSaver.replay();
+        awaitReplay();
+
+        assertEquals(5, collection.getMovie(inception.getId()).getValutazione(),
+                "La versione nel journal è più vecchia di quella modificata ora");
+    }
+
+    // ========== COMPACTION TESTS ==========
+
+    @Test
+    @DisplayName("Dopo il replay il journal dovrebbe essere compattato in uno snapshot")
+    void testReplayCompactsJournal() throws Exception {
+        Movie tenet = new Movie("Nolan", ViewingStatus.VISTO, 3, "Sci-Fi", 2020, "Tenet");
+        try (MovieJournal journal = new MovieJournal(filename + ".journal")) {
+            journal.append(MovieJournal.put(tenet));
+        }
+
+        startAutoSaver();
+        autoSaver.replay();
+        awaitReplay();
+        autoSaver.flush();
+
+        assertEquals(0, Files.size(Path.of(filename + ".journal")), "Il journal dovrebbe ripartire vuoto");
+        assertEquals(List.of(tenet.toString()), snapshot(), "Lo snapshot dovrebbe contenere il film riapplicato");
+    }
+
+    @Test
+    @DisplayName("Superata la soglia di record il journal dovrebbe essere compattato")
+    void testCompactionAfterThreshold() throws Exception {
+        startAutoSaver();
+        autoSaver.replay();
+        awaitReplay();
+
+        Movie movie = new Movie("Nolan", ViewingStatus.VISTO, 3, "Sci-Fi", 2020, "Tenet");
+        collection.addMovie(movie);
+        for (int i = 1; i < AppConfiguration.JOURNAL_COMPACTION_RECORDS + 10; i++) {
+            movie.setValutazione(1 + i % 5);
+            collection.updateMovie(movie);
+        }
+        autoSaver.flush();
+
+        assertEquals(List.of(collection.getMovie(movie.getId()).toString()),
+                replayOnSnapshot(), "Snapshot e journal insieme dovrebbero dare l'ultima versione");
+        assertTrue(Files.size(Path.of(filename + ".journal")) < 10 * 100,
+                "Dopo lo snapshot il journal dovrebbe contenere solo gli ultimi record");
+    }
+
+    @Test
+    @DisplayName("Senza replay (caricamento fallito) l'auto-save non dovrebbe essere riscritto")
+    void testNoCompactionWithoutReplay() throws Exception {
+        startAutoSaver();
+
+        Movie movie = new Movie("Nolan", ViewingStatus.VISTO, 3, "Sci-Fi", 2020, "Tenet");
+        collection.addMovie(movie);
+        for (int i = 1; i < AppConfiguration.JOURNAL_COMPACTION_RECORDS + 10; i++) {
+            movie.setValutazione(1 + i % 5);
+            collection.updateMovie(movie);
+        }
+        autoSaver.flush();
+
+        assertFalse(Files.exists(Path.of(filename + ".json")), "Lo snapshot di una collezione parziale non va scritto");
+        List<String> records = new ArrayList<>();
+        MovieJournal.read(filename + ".journal", m -> records.add(m.getId()), records::add);
+        assertEquals(AppConfiguration.JOURNAL_COMPACTION_RECORDS + 10, records.size(),
+                "Tutte le modifiche dovrebbero restare nel journal");
+    }
+
+    // ========== HELPERS ==========
+
+    private void startAutoSaver() {
+        autoSaver = new AutoSaver(collection, filename, 10);
+        collection.addChangeListener(autoSaver);
+    }
+
+    // Il journal viene letto sul thread dell'auto-save e riapplicato sull'EDT
+    private void awaitReplay() throws InterruptedException, InvocationTargetException {
+        autoSaver.flush();
+        SwingUtilities.invokeAndWait(() -> { });
+        autoSaver.flush();
+    }
+
+    private List<String> snapshot() {
+        List<String> movies = new ArrayList<>();
+        for (Movie movie : new JSONPersistence().load(filename)) {
+            movies.add(movie.toString());
+        }
+        return movies;
+    }
+
+    private List<String> replayOnSnapshot() throws IOException {
+        List<Movie> movies = new ArrayList<>(new JSONPersistence().load(filename));
+        MovieJournal.read(filename + ".journal", movie -> {
+            movies.removeIf(m -> m.getId().equals(movie.getId()));
+            movies.add(movie);
+        }, id -> movies.removeIf(m -> m.getId().equals(id)));
+        List<String> result = new ArrayList<>();
+        for (Movie movie : movies) {
+            result.add(movie.toString());
+        }
+        return result;
+    }
+
+    private void clearCollection() {
+        for (Movie movie : collection.getAllMovies()) {
+            collection.removeMovie(movie.getId());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.parbonetti.gestorefilm.controller;
+
+import org.junit.jupiter.api.*;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilterExecutorTest {
+
+    // ========== PENDING TESTS ==========
+
+    @Test
+    @DisplayName("Un filtro che fallisce non dovrebbe restare in attesa")
+    void testFailedQueryIsNotPending() throws Exception {
+        FilterExecutor filters = new FilterExecutor();
+        List<String> published = new ArrayList<>();
+
+        SwingUtilities.invokeAndWait(() -> filters.<String>submit(() -> {
+            throw new IllegalStateException("indice non disponibile");
+        }, published::add, 0));
+
+        assertTrue(awaitNotPending(filters), "Dopo l'errore isPending dovrebbe tornare false");
+        assertTrue(published.isEmpty(), "Un filtro fallito non dovrebbe pubblicare nulla");
+
+        // La richiesta successiva funziona normalmente
+        SwingUtilities.invokeAndWait(() -> filters.submit(() -> "ok", published::add, 0));
+        assertTrue(awaitNotPending(filters));
+        assertEquals(List.of("ok"), published);
+    }
+
+    // ========== HELPERS ==========
+
+    // isPending va letto sull'EDT, dove arriva anche l'esito del filtro
+    private static boolean awaitNotPending(FilterExecutor filters) throws Exception {
+        AtomicBoolean pending = new AtomicBoolean(true);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pending.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> pending.set(filters.isPending()));
+        }
+        return !pending.get();
+    }
+}
@@ -0,0 +1,222 @@
+package com.parbonetti.gestorefilm.model;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FuzzyIndexTest {
+    private static final String CONSONANTS = "bcdfghlmnprstvz";
+    private static final String VOWELS = "aeiou";
+
+    // Budget della ricerca durante la digitazione, con 500.000 film in collezione
+    private static final long MAX_SEARCH_NANOS = 10_000_000L;
+
+    // ========== RANKING TESTS ==========
+
+    @Test
+    @DisplayName("search dovrebbe dare gli stessi risultati del confronto con tutte le parole")
+    void testSearchMatchesBruteForce() {
+        Random random = new Random(11);
+        String[] vocabulary = vocabulary(random, 400);
+        List<String[]> rows = new ArrayList<>();
+        FuzzyIndex index = new FuzzyIndex();
+        for (int row = 0; row < 3000; row++) {
+            String titolo = words(random, vocabulary, 1 + random.nextInt(3));
+            String regista = words(random, vocabulary, 2);
+            rows.add(new String[]{titolo, regista});
+            index.add(row, titolo, regista);
+        }
+        // Rimozioni e reinserimenti: parole che spariscono e tornano, trie da ricompattare
+        for (int row = 0; row < rows.size(); row += 3) {
+            index.remove(row, rows.get(row)[0], rows.get(row)[1]);
+            rows.set(row, null);
+        }
+        for (int row = 0; row < rows.size(); row += 6) {
+            String titolo = words(random, vocabulary, 2);
+            rows.set(row, new String[]{titolo, "regista"});
+            index.add(row, titolo, "regista");
+        }
+
+        BitSet all = new BitSet();
+        BitSet even = new BitSet();
+        for (int row = 0; row < rows.size(); row++) {
+            if (rows.get(row) != null) {
+                all.set(row);
+                if (row % 2 == 0) {
+                    even.set(row);
+                }
+            }
+        }
+
+        for (int q = 0; q < 300; q++) {
+            String word = vocabulary[random.nextInt(vocabulary.length)];
+            String query;
+            switch (q % 4) {
+                case 0:
+                    query = word;
+                    break;
+                case 1:
+                    query = word.substring(0, 1 + random.nextInt(word.length()));
+                    break;
+                case 2:
+                    query = typo(random, word);
+                    break;
+                default:
+                    query = typo(random, word) + " " + vocabulary[random.nextInt(vocabulary.length)].substring(0, 3);
+                    break;
+            }
+            for (int limit : new int[]{1, 7, 10_000}) {
+                BitSet candidates = q % 3 == 0 ? even : all;
+                assertArrayEquals(bruteForce(rows, query, candidates, limit),
+                        index.search(query, rows.size(), candidates, limit),
+                        "Risultati diversi per '" + query + "' con limite " + limit);
+            }
+        }
+    }
+
+    // ========== LATENCY TESTS ==========
+
+    @Test
+    @DisplayName("search dovrebbe restare sotto i 10 ms con 500.000 film")
+    void testSearchLatency() {
+        Random random = new Random(7);
+        String[] vocabulary = vocabulary(random, 150_000);
+        String[] nomi = Arrays.copyOf(vocabulary, 3000);
+        String[] cognomi = Arrays.copyOfRange(vocabulary, 3000, 23_000);
+        int size = 500_000;
+        FuzzyIndex index = new FuzzyIndex();
+        for (int row = 0; row < size; row++) {
+            String regista = row % 1000 == 0 ? "stanley kubrick"
+                    : row % 997 == 0 ? "christopher nolan"
+                    : nomi[random.nextInt(nomi.length)] + " " + cognomi[random.nextInt(cognomi.length)];
+            index.add(row, words(random, vocabulary, 1 + random.nextInt(3)), regista);
+        }
+        BitSet all = new BitSet();
+        all.set(0, size);
+
+        String[] queries = {"b", "k", "ku", "kub", "kubr", "kubri", "kubrik", "kubrick", "stanley kubrik",
+                "cristopher nolan", "spielbrg", "ba", "bam", typo(random, vocabulary[42]), vocabulary[99] + "x"};
+        int added = size;
+        for (String query : queries) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 30; run++) {
+                // Un film aggiunto tra una ricerca e l'altra, come durante l'uso
+                index.add(added, words(random, vocabulary, 2), "stanley kubrick");
+                added++;
+                long start = System.nanoTime();
+                index.search(query, added, all, 200);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            assertTrue(best < MAX_SEARCH_NANOS,
+                    "'" + query + "' ha richiesto " + best / 1000 + " us, oltre il budget di 10 ms");
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    private static String[] vocabulary(Random random, int size) {
+        String[] vocabulary = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) {
+                word.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())))
+                        .append(VOWELS.charAt(random.nextInt(VOWELS.length())));
+            }
+            if (random.nextBoolean()) {
+                word.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())));
+            }
+            vocabulary[i] = word.toString();
+        }
+        return vocabulary;
+    }
+
+    private static String words(Random random, String[] vocabulary, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return text.toString();
+    }
+
+    // Un errore casuale: sostituzione, cancellazione o inserimento
+    private static String typo(Random random, String word) {
+        int pos = random.nextInt(word.length());
+        char c = VOWELS.charAt(random.nextInt(VOWELS.length()));
+        switch (random.nextInt(3)) {
+            case 0:
+                return word.substring(0, pos) + c + word.substring(pos + 1);
+            case 1:
+                return word.substring(0, pos) + word.substring(pos + 1);
+            default:
+                return word.substring(0, pos) + c + word.substring(pos);
+        }
+    }
+
+    // Riferimento: ogni parola della query prende il punteggio migliore tra le parole della riga
+    // (esatta 4, prefisso 3, poi 3 meno la distanza), ordinamento per punteggio e poi per riga
+    private static int[] bruteForce(List<String[]> rows, String query, BitSet candidates, int limit) {
+        String[] queryWords = query.split(" ");
+        List<int[]> found = new ArrayList<>();
+        for (int row = 0; row < rows.size(); row++) {
+            if (rows.get(row) == null || !candidates.get(row)) {
+                continue;
+            }
+            String[] rowWords = (rows.get(row)[0] + " " + rows.get(row)[1]).split(" ");
+            int total = 0;
+            for (String queryWord : queryWords) {
+                int best = -1;
+                int maxDistance = queryWord.length() <= 3 ? 0 : queryWord.length() <= 6 ? 1 : 2;
+                for (String word : rowWords) {
+                    int distance = distance(queryWord, word);
+                    if (word.equals(queryWord)) {
+                        best = Math.max(best, 4);
+                    } else if (word.startsWith(queryWord)) {
+                        best = Math.max(best, 3);
+                    } else if (distance <= maxDistance) {
+                        best = Math.max(best, 3 - distance);
+                    }
+                }
+                if (best < 0) {
+                    total = -1;
+                    break;
+                }
+                total += best;
+            }
+            if (total >= 0) {
+                found.add(new int[]{row, total});
+            }
+        }
+        found.sort(Comparator.<int[]>comparingInt(r -> -r[1]).thenComparingInt(r -> r[0]));
+        return found.stream().limit(limit).mapToInt(r -> r[0]).toArray();
+    }
+
+    private static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,86 @@
+package com.parbonetti.gestorefilm.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Ricerca per id tramite l'indice primario, confrontata con la scansione della lista
+// che MovieCollection faceva prima (un confronto di id per film).
+// Avvio: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+//        -Dexec.args="-cp %classpath com.parbonetti.gestorefilm.model.MovieCollectionLookupBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MovieCollectionLookupBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    private MovieCollection collection;
+    private List<Movie> movies;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MovieCollection.resetForTesting();
+        collection = MovieCollection.getInstance();
+        movies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            movies.add(new Movie("Regista " + (i % 5000), ViewingStatus.values()[i % 3], 1 + i % 5,
+                    "Genere " + (i % 20), 1900 + i % 120, "Film " + i));
+        }
+        collection.addMovies(movies);
+
+        Random random = new Random(42);
+        ids = new String[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = movies.get(random.nextInt(size)).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MovieCollection.resetForTesting();
+    }
+
+    @Benchmark
+    public Movie getMovie() {
+        return collection.getMovie(nextId());
+    }
+
+    @Benchmark
+    public boolean updateMovie() {
+        return collection.updateMovie(collection.getMovie(nextId()));
+    }
+
+    @Benchmark
+    public Movie linearScan() {
+        String id = nextId();
+        for (Movie movie : movies) {
+            if (movie.getId().equals(id)) {
+                return movie;
+            }
+        }
+        return null;
+    }
+
+    private String nextId() {
+        next = (next + 1) & (ids.length - 1);
+        return ids[next];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MovieCollectionLookupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
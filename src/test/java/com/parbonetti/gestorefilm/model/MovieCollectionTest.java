@@ -177,6 +177,59 @@ public class MovieCollectionTest {
         assertNull(result, "getMovie(null) -> null");
     }
 
+    // ========== ID INDEX TESTS ==========
+
+    @Test
+    @DisplayName("addMovie con un ID già presente -> false")
+    void testAddMovieSameId() {
+        Movie movie = new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2010, "Inception");
+        collection.addMovie(movie);
+
+        boolean result = collection.addMovie(new Movie(movie));
+
+        assertFalse(result, "Non dovrebbe ammettere due film con lo stesso ID");
+        assertEquals(1, collection.getMovieCount(), "Collection dovrebbe avere 1 film");
+    }
+
+    @Test
+    @DisplayName("Un film rimosso e riaggiunto (undo) dovrebbe tornare reperibile")
+    void testRemoveAndAddAgain() {
+        Movie movie = new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2010, "Inception");
+        collection.addMovie(movie);
+
+        collection.removeMovie(movie.getId());
+        assertNull(collection.getMovie(movie.getId()), "Il film rimosso non dovrebbe essere trovato");
+
+        collection.addMovie(movie);
+        assertSame(movie, collection.getMovie(movie.getId()), "Il film riaggiunto dovrebbe essere trovato");
+        assertEquals(1, collection.getMovieCount(), "Collection dovrebbe avere 1 film");
+    }
+
+    @Test
+    @DisplayName("Molte rimozioni non dovrebbero alterare ordine e ricerca per ID")
+    void testManyRemovalsKeepOrder() {
+        List<Movie> added = new java.util.ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Movie movie = new Movie("Regista " + i, ViewingStatus.DA_VEDERE, 3, "Drammatico", 2000, "Film " + i);
+            collection.addMovie(movie);
+            added.add(movie);
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            if (i % 5 != 0) {
+                collection.removeMovie(added.get(i).getId());
+            }
+        }
+
+        List<Movie> remaining = collection.getAllMovies();
+        assertEquals(1000, remaining.size(), "Dovrebbero restare 1000 film");
+        for (int i = 0; i < remaining.size(); i++) {
+            Movie expected = added.get(i * 5);
+            assertSame(expected, remaining.get(i), "L'ordine di inserimento dovrebbe essere mantenuto");
+            assertSame(expected, collection.getMovie(expected.getId()), "getMovie dovrebbe trovare il film");
+        }
+    }
+
     // ========== SEARCH TESTS ==========
 
     @Test
@@ -222,6 +275,141 @@ public class MovieCollectionTest {
         assertTrue(results.isEmpty(), "Ricerca con null -> lista vuota");
     }
 
+    @Test
+    @DisplayName("searchByTitleOrAuthor dovrebbe trovare sottostringhe corte, lunghe e con spazi")
+    void testSearchSubstrings() {
+        collection.addMovie(new Movie("Stanley Kubrick", ViewingStatus.VISTO, 5, "Sci-Fi", 1968, "2001: Odissea nello spazio"));
+        collection.addMovie(new Movie("Stanley Kubrick", ViewingStatus.VISTO, 5, "Horror", 1980, "Shining"));
+        collection.addMovie(new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2010, "Inception"));
+
+        assertEquals(2, collection.searchByTitleOrAuthor("KUBR").size(), "Dovrebbe trovare i film di Kubrick");
+        assertEquals(1, collection.searchByTitleOrAuthor("lo spa").size(), "Dovrebbe trovare sottostringhe con spazi");
+        assertEquals(3, collection.searchByTitleOrAuthor("n").size(), "Una sola lettera dovrebbe funzionare");
+        assertTrue(collection.searchByTitleOrAuthor("kubrickx").isEmpty(), "Nessun film dovrebbe contenere 'kubrickx'");
+    }
+
+    @Test
+    @DisplayName("searchByTitleOrAuthor dovrebbe seguire modifiche e rimozioni")
+    void testSearchFollowsUpdates() {
+        Movie movie = new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2010, "Inception");
+        collection.addMovie(movie);
+
+        movie.setTitolo("Tenet");
+        collection.updateMovie(movie);
+
+        assertTrue(collection.searchByTitleOrAuthor("incep").isEmpty(), "Il vecchio titolo non dovrebbe essere trovato");
+        assertEquals(1, collection.searchByTitleOrAuthor("tene").size(), "Il nuovo titolo dovrebbe essere trovato");
+
+        collection.removeMovie(movie.getId());
+
+        assertTrue(collection.searchByTitleOrAuthor("nolan").isEmpty(), "Un film rimosso non dovrebbe essere trovato");
+    }
+
+    @Test
+    @DisplayName("searchByTitleOrAuthor dovrebbe ignorare gli accenti")
+    void testSearchIgnoresAccents() {
+        collection.addMovie(new Movie("Tornatore", ViewingStatus.VISTO, 5, "Drammatico", 1988, "Nuovo Cinema Paradiso"));
+        collection.addMovie(new Movie("Pietro Germi", ViewingStatus.VISTO, 4, "Commedia", 1961, "Divorzio all'italiana"));
+        collection.addMovie(new Movie("Lina Wertmüller", ViewingStatus.DA_VEDERE, 4, "Commedia", 1974, "Perché?"));
+
+        assertEquals(1, collection.searchByTitleOrAuthor("perche").size(), "'perche' dovrebbe trovare 'Perché?'");
+        assertEquals(1, collection.searchByTitleOrAuthor("PERCHÉ").size(), "'PERCHÉ' dovrebbe trovare 'Perché?'");
+        assertEquals(1, collection.searchByTitleOrAuthor("wertmuller").size(), "'wertmuller' dovrebbe trovare 'Wertmüller'");
+    }
+
+    @Test
+    @DisplayName("Le chiavi di ricerca dovrebbero seguire setter e memento")
+    void testSearchKeysInvalidation() {
+        Movie movie = new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2010, "Inception");
+        Movie.Memento beforeState = movie.createMemento();
+        assertEquals("inception", movie.getTitoloKey(), "Chiave del titolo");
+
+        movie.setTitolo("Città");
+        movie.setRegista("Fellini");
+        assertEquals("citta", movie.getTitoloKey(), "La chiave dovrebbe seguire setTitolo");
+        assertEquals("fellini", movie.getRegistaKey(), "La chiave dovrebbe seguire setRegista");
+
+        movie.restoreFromMemento(beforeState);
+        assertEquals("inception", movie.getTitoloKey(), "La chiave dovrebbe seguire restoreFromMemento");
+        assertEquals("nolan", movie.getRegistaKey(), "La chiave dovrebbe seguire restoreFromMemento");
+    }
+
+    @Test
+    @DisplayName("fuzzySearch dovrebbe tollerare errori di battitura")
+    void testFuzzySearchTypos() {
+        collection.addMovie(new Movie("Stanley Kubrick", ViewingStatus.VISTO, 5, "Horror", 1980, "Shining"));
+        collection.addMovie(new Movie("Christopher Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"));
+
+        List<Movie> results = collection.fuzzySearch("kubrik", 10);
+
+        assertEquals(1, results.size(), "'kubrik' dovrebbe trovare Kubrick");
+        assertEquals("Shining", results.get(0).getTitolo(), "Dovrebbe essere Shining");
+        assertEquals(1, collection.fuzzySearch("cristopher nolan", 10).size(), "Ogni parola dovrebbe tollerare un errore");
+        assertTrue(collection.fuzzySearch("spielberg", 10).isEmpty(), "Nessun film di Spielberg");
+    }
+
+    @Test
+    @DisplayName("fuzzySearch dovrebbe ordinare per pertinenza e rispettare il limite")
+    void testFuzzySearchRanking() {
+        collection.addMovie(new Movie("Regista", ViewingStatus.VISTO, 3, "Drammatico", 2000, "Ventura"));
+        collection.addMovie(new Movie("Regista", ViewingStatus.VISTO, 3, "Drammatico", 2000, "Avventure"));
+        collection.addMovie(new Movie("Regista", ViewingStatus.VISTO, 3, "Drammatico", 2000, "Avventura"));
+
+        List<Movie> results = collection.fuzzySearch("avventura", 10);
+
+        assertEquals(3, results.size(), "Dovrebbe trovare tutti e tre i film");
+        assertEquals("Avventura", results.get(0).getTitolo(), "La parola esatta dovrebbe essere la prima");
+        assertEquals("Avventure", results.get(1).getTitolo(), "Un errore dovrebbe venire prima di due");
+        assertEquals(1, collection.fuzzySearch("avventura", 1).size(), "Il limite dovrebbe essere rispettato");
+        assertEquals(2, collection.fuzzySearch("avv", 10).size(), "Un prefisso dovrebbe trovare le parole che iniziano così");
+
+        collection.addMovie(new Movie("Regista", ViewingStatus.VISTO, 3, "Drammatico", 2001, "Avventurosi"));
+        assertEquals("Avventura", results.get(0).getTitolo(), "Il risultato è una copia: resta usabile dopo una modifica");
+        assertEquals(2, collection.fuzzySearch("", 2).size(), "Senza testo il limite dovrebbe valere comunque");
+    }
+
+    @Test
+    @DisplayName("Una query con il solo limite dovrebbe restituire i primi film")
+    void testQueryLimitOnly() {
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 4, "Sci-Fi", 2020, "Tenet"));
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"));
+        collection.addMovie(new Movie("Gerwig", ViewingStatus.VISTO, 3, "Commedia", 2023, "Barbie"));
+
+        MovieQuery query = new MovieQuery();
+        query.setLimit(2);
+
+        assertEquals(List.of("Tenet", "Inception"), collection.query(query).stream().map(Movie::getTitolo).toList(),
+                "Dovrebbero arrivare solo i primi 2 film, in ordine di inserimento");
+        query.setLimit(10);
+        assertEquals(3, collection.query(query).size(), "Un limite oltre la collezione dovrebbe dare tutti i film");
+    }
+
+    @Test
+    @DisplayName("La ricerca durante la digitazione dovrebbe restare corretta, anche con backspace e modifiche")
+    void testSearchTypeAhead() {
+        collection.addMovie(new Movie("Kubrick", ViewingStatus.VISTO, 5, "Sci-Fi", 1968, "2001: Odissea nello spazio"));
+        collection.addMovie(new Movie("Kubrick", ViewingStatus.VISTO, 5, "Horror", 1980, "Shining"));
+        collection.addMovie(new Movie("Kurosawa", ViewingStatus.VISTO, 5, "Drama", 1954, "I sette samurai"));
+
+        assertEquals(3, collection.searchByTitleOrAuthor("ku").size(), "\"ku\" dovrebbe trovare 3 film");
+        assertEquals(2, collection.searchByTitleOrAuthor("kub").size(), "\"kub\" dovrebbe trovare 2 film");
+        assertEquals(2, collection.searchByTitleOrAuthor("kubri").size(), "\"kubri\" dovrebbe trovare 2 film");
+        assertEquals(0, collection.searchByTitleOrAuthor("kubrix").size(), "\"kubrix\" non dovrebbe trovare nulla");
+        // Backspace
+        assertEquals(2, collection.searchByTitleOrAuthor("kubr").size(), "\"kubr\" dovrebbe trovare 2 film");
+        assertEquals(3, collection.searchByTitleOrAuthor("ku").size(), "\"ku\" dovrebbe trovare di nuovo 3 film");
+
+        // Una modifica invalida i risultati precedenti
+        collection.addMovie(new Movie("Kubrick", ViewingStatus.DA_VEDERE, 4, "Drama", 1975, "Barry Lyndon"));
+        assertEquals(3, collection.searchByTitleOrAuthor("kubr").size(), "Il nuovo film dovrebbe essere trovato");
+
+        MovieQuery query = new MovieQuery();
+        query.setText("kubri");
+        query.setGenere("Drama");
+        assertEquals(1, collection.query(query).size(), "Testo e genere insieme dovrebbero trovare solo Barry Lyndon");
+        assertEquals(3, collection.searchByTitleOrAuthor("kubri").size(), "Il filtro sul genere non dovrebbe restringere la ricerca successiva");
+    }
+
     // ========== FILTER TESTS ==========
 
     @Test
@@ -266,6 +454,291 @@ public class MovieCollectionTest {
                 "Tutti i risultati dovrebbero avere valutazione = 4");
     }
 
+    @Test
+    @DisplayName("filterByGenere dovrebbe ignorare maiuscole/minuscole")
+    void testFilterByGenereCaseInsensitive() {
+        collection.addMovie(new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2010, "Inception"));
+        collection.addMovie(new Movie("Gerwig", ViewingStatus.DA_VEDERE, 5, "Commedia", 2023, "Barbie"));
+
+        List<Movie> results = collection.filterByGenere("sci-fi");
+
+        assertEquals(1, results.size(), "Il filtro genere dovrebbe essere case-insensitive");
+    }
+
+    @Test
+    @DisplayName("I filtri dovrebbero seguire modifiche, undo e rimozioni")
+    void testFiltersFollowUpdates() {
+        Movie movie = new Movie("Nolan", ViewingStatus.DA_VEDERE, 3, "Sci-Fi", 2010, "Inception");
+        collection.addMovie(movie);
+        Movie.Memento beforeState = movie.createMemento();
+
+        // Modifica sul posto come fa il form, poi updateMovie come EditMovieCommand
+        movie.setGenere("Thriller");
+        movie.setStatoVisione(ViewingStatus.VISTO);
+        movie.setValutazione(5);
+        collection.updateMovie(movie);
+
+        assertTrue(collection.filterByGenere("Sci-Fi").isEmpty(), "Il vecchio genere non dovrebbe trovare il film");
+        assertEquals(1, collection.filterByGenere("Thriller").size(), "Il nuovo genere dovrebbe trovare il film");
+        assertTrue(collection.filterByStatus(ViewingStatus.DA_VEDERE).isEmpty(), "Il vecchio stato non dovrebbe trovare il film");
+        assertEquals(1, collection.filterByRating(5).size(), "La nuova valutazione dovrebbe trovare il film");
+
+        movie.restoreFromMemento(beforeState);
+        collection.updateMovie(movie);
+
+        assertEquals(1, collection.filterByGenere("Sci-Fi").size(), "Dopo l'undo il genere originale dovrebbe tornare");
+        assertEquals(1, collection.filterByStatus(ViewingStatus.DA_VEDERE).size(), "Dopo l'undo lo stato originale dovrebbe tornare");
+        assertTrue(collection.filterByRating(5).isEmpty(), "Dopo l'undo la valutazione 5 non dovrebbe trovare il film");
+
+        collection.removeMovie(movie.getId());
+
+        assertTrue(collection.filterByGenere("Sci-Fi").isEmpty(), "Un film rimosso non dovrebbe essere trovato");
+        assertTrue(collection.filterByRating(3).isEmpty(), "Un film rimosso non dovrebbe essere trovato");
+    }
+
+    @Test
+    @DisplayName("filterByYearRange dovrebbe includere gli estremi e seguire le modifiche")
+    void testFilterByYearRange() {
+        Movie inception = new Movie("Nolan", ViewingStatus.DA_VEDERE, 4, "Sci-Fi", 2010, "Inception");
+        collection.addMovie(new Movie("Kubrick", ViewingStatus.VISTO, 5, "Sci-Fi", 1968, "2001: Odissea nello spazio"));
+        collection.addMovie(inception);
+        collection.addMovie(new Movie("Nolan", ViewingStatus.DA_VEDERE, 4, "Sci-Fi", 2014, "Interstellar"));
+
+        assertEquals(2, collection.filterByYearRange(2010, 2014).size(), "Gli estremi dovrebbero essere inclusi");
+        assertEquals(1, collection.filterByYearRange(1960, 1969).size(), "Dovrebbe trovare un film degli anni '60");
+        assertTrue(collection.filterByYearRange(2015, 2010).isEmpty(), "Un intervallo vuoto non dovrebbe trovare film");
+
+        inception.setAnnoUscita(1999);
+        collection.updateMovie(inception);
+
+        assertEquals(1, collection.filterByYearRange(2010, 2014).size(), "Il vecchio anno non dovrebbe più contare");
+        assertEquals(1, collection.filterByYearRange(1990, 1999).size(), "Il nuovo anno dovrebbe essere trovato");
+    }
+
+    // ========== QUERY TESTS ==========
+
+    @Test
+    @DisplayName("query senza criteri dovrebbe ritornare tutti i film")
+    void testQueryEmpty() {
+        collection.addMovie(new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2010, "Inception"));
+        collection.addMovie(new Movie("Gerwig", ViewingStatus.VISTO, 4, "Commedia", 2023, "Barbie"));
+
+        assertEquals(2, collection.query(new MovieQuery()).size(), "Una query vuota non dovrebbe filtrare");
+        assertEquals(2, collection.query(null).size(), "Una query null non dovrebbe filtrare");
+    }
+
+    @Test
+    @DisplayName("query dovrebbe combinare testo, genere, stato e valutazione")
+    void testQueryCombined() {
+        Movie inception = new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception");
+        collection.addMovie(inception);
+        collection.addMovie(new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2014, "Interstellar"));
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 4, "Sci-Fi", 2020, "Tenet"));
+        collection.addMovie(new Movie("Gerwig", ViewingStatus.VISTO, 5, "Commedia", 2023, "Barbie"));
+
+        MovieQuery query = new MovieQuery();
+        query.setText("nolan");
+        query.setGenere("sci-fi");
+        query.setStatus(ViewingStatus.VISTO);
+        query.setRatingRange(5, 5);
+
+        List<Movie> results = collection.query(query);
+
+        assertEquals(1, results.size(), "Dovrebbe trovare un solo film");
+        assertSame(inception, results.get(0), "Dovrebbe essere Inception");
+    }
+
+    @Test
+    @DisplayName("query dovrebbe filtrare per intervallo di valutazione e di anno")
+    void testQueryRanges() {
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"));
+        collection.addMovie(new Movie("Nolan", ViewingStatus.DA_VEDERE, 3, "Sci-Fi", 2014, "Interstellar"));
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 1, "Sci-Fi", 2020, "Tenet"));
+
+        MovieQuery query = new MovieQuery();
+        query.setRatingRange(3, 0);
+        query.setYearRange(2012, 2030);
+
+        List<Movie> results = collection.query(query);
+
+        assertEquals(1, results.size(), "Dovrebbe trovare un solo film");
+        assertEquals("Interstellar", results.get(0).getTitolo(), "Dovrebbe essere Interstellar");
+    }
+
+    @Test
+    @DisplayName("query con un genere assente -> lista vuota")
+    void testQueryUnknownGenre() {
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"));
+
+        MovieQuery query = new MovieQuery();
+        query.setGenere("Western");
+
+        assertTrue(collection.query(query).isEmpty(), "Nessun film Western");
+    }
+
+    @Test
+    @DisplayName("Il risultato di query non dovrebbe essere usato dopo una modifica")
+    void testQueryResultInvalidatedByMutation() {
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"));
+
+        MovieQuery query = new MovieQuery();
+        query.setStatus(ViewingStatus.VISTO);
+        List<Movie> results = collection.query(query);
+
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 4, "Sci-Fi", 2020, "Tenet"));
+
+        assertThrows(java.util.ConcurrentModificationException.class, () -> results.get(0),
+                "Una vista su righe non più valide dovrebbe segnalare la modifica");
+    }
+
+    @Test
+    @DisplayName("Il risultato di query dovrebbe leggere correttamente le pagine anche con accessi sparsi")
+    void testQueryCursorPaging() {
+        List<Movie> added = new java.util.ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Movie movie = new Movie("Regista " + i, ViewingStatus.VISTO, 1 + i % 5, "Drama", 1950 + i % 50, "Film " + i);
+            collection.addMovie(movie);
+            added.add(movie);
+        }
+
+        MovieQuery query = new MovieQuery();
+        query.setRatingRange(3, 3);
+        MovieCollection.Cursor results = collection.query(query);
+
+        assertEquals(400, results.size(), "Un film su cinque ha valutazione 3");
+        // Prima l'ultima pagina, poi la prima: l'ordine di accesso non deve contare
+        assertSame(added.get(1997), results.get(399), "Ultimo risultato");
+        assertSame(added.get(2), results.get(0), "Primo risultato");
+        assertSame(added.get(1002), results.get(200), "Risultato a metà");
+        assertEquals(200, results.indexOf(added.get(1002)), "indexOf dovrebbe trovare la posizione");
+        assertEquals(-1, results.indexOf(added.get(1003)), "Un film escluso dal filtro non ha posizione");
+
+        MovieCollection.Cursor all = collection.query(null);
+        all.prefetch(0, all.size() - 1);
+        assertEquals(added, all, "Senza filtri il risultato è tutta la collezione");
+    }
+
+    @Test
+    @DisplayName("Una query interrotta da modifiche concorrenti non dovrebbe mai dare un risultato sbagliato")
+    void testQueryConcurrentWithChanges() throws InterruptedException {
+        for (int i = 0; i < 20_000; i++) {
+            collection.addMovie(new Movie("Regista " + (i % 50), ViewingStatus.VISTO, 1 + i % 5,
+                    "Genere " + (i % 4), 1950 + i % 60, "Film " + i));
+        }
+        MovieQuery query = new MovieQuery();
+        query.setText("film 1");
+        query.setGenere("Genere 1");
+        query.setSort(SortKey.ANNO, true);
+
+        java.util.concurrent.atomic.AtomicBoolean running = new java.util.concurrent.atomic.AtomicBoolean(true);
+        java.util.concurrent.atomic.AtomicInteger checked = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicReference<String> failure = new java.util.concurrent.atomic.AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get() && failure.get() == null) {
+                MovieCollection.Cursor result = collection.query(query);
+                // Con il lock nessuna modifica può passare: se il risultato è ancora valido
+                // deve coincidere con la query rieseguita
+                synchronized (collection) {
+                    try {
+                        List<Movie> copy = new java.util.ArrayList<>(result);
+                        if (!copy.equals(collection.query(query))) {
+                            failure.set("Risultato diverso dalla query rieseguita");
+                        }
+                        checked.incrementAndGet();
+                    } catch (java.util.ConcurrentModificationException e) {
+                        // Superato da una modifica: nessun controllo
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        java.util.Random random = new java.util.Random(3);
+        List<Movie> movies = collection.getAllMovies();
+        for (int i = 0; i < 3000; i++) {
+            Movie movie = movies.get(random.nextInt(movies.size()));
+            movie.setAnnoUscita(1950 + random.nextInt(60));
+            movie.setGenere("Genere " + random.nextInt(4));
+            collection.updateMovie(movie);
+            if (i % 100 == 0) {
+                Thread.sleep(1);
+            }
+        }
+        running.set(false);
+        reader.join();
+
+        assertNull(failure.get(), failure.get());
+        assertTrue(checked.get() > 0, "Almeno un risultato dovrebbe essere stato verificato");
+    }
+
+    // ========== SORT TESTS ==========
+
+    @Test
+    @DisplayName("getSortedMovies dovrebbe ordinare per titolo e per anno")
+    void testGetSortedMovies() {
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 4, "Sci-Fi", 2020, "Tenet"));
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"));
+        collection.addMovie(new Movie("Gerwig", ViewingStatus.VISTO, 3, "Commedia", 2023, "Barbie"));
+
+        List<Movie> byTitle = collection.getSortedMovies(SortKey.TITOLO, false);
+        assertEquals("Barbie", byTitle.get(0).getTitolo(), "Primo per titolo: Barbie");
+        assertEquals("Tenet", byTitle.get(2).getTitolo(), "Ultimo per titolo: Tenet");
+
+        List<Movie> byYear = collection.getSortedMovies(SortKey.ANNO, true);
+        assertEquals(2023, byYear.get(0).getAnnoUscita(), "Il più recente dovrebbe essere primo");
+        assertEquals(2010, byYear.get(2).getAnnoUscita(), "Il meno recente dovrebbe essere ultimo");
+
+        // Come gli altri metodi che restituiscono liste, è una copia: resta usabile dopo una modifica
+        collection.addMovie(new Movie("Scott", ViewingStatus.VISTO, 5, "Horror", 1979, "Alien"));
+        assertEquals("Barbie", byTitle.get(0).getTitolo(), "La lista già restituita non dovrebbe cambiare");
+        assertEquals(3, byTitle.size());
+    }
+
+    @Test
+    @DisplayName("La vista ordinata dovrebbe seguire aggiunte, modifiche e rimozioni")
+    void testSortedMoviesFollowUpdates() {
+        Movie tenet = new Movie("Nolan", ViewingStatus.VISTO, 4, "Sci-Fi", 2020, "Tenet");
+        Movie inception = new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception");
+        collection.addMovie(tenet);
+        collection.addMovie(inception);
+        assertSame(inception, collection.getSortedMovies(SortKey.TITOLO, false).get(0));
+
+        // Modifica in place come fa il dialog di modifica
+        tenet.setTitolo("Alien");
+        collection.updateMovie(tenet);
+        collection.addMovie(new Movie("Gerwig", ViewingStatus.VISTO, 3, "Commedia", 2023, "Barbie"));
+
+        List<Movie> sorted = collection.getSortedMovies(SortKey.TITOLO, false);
+        assertEquals(3, sorted.size(), "Dovrebbero esserci 3 film");
+        assertSame(tenet, sorted.get(0), "Il titolo modificato dovrebbe essere riposizionato");
+        assertEquals("Barbie", sorted.get(1).getTitolo());
+
+        collection.removeMovie(tenet.getId());
+        sorted = collection.getSortedMovies(SortKey.TITOLO, false);
+        assertEquals(2, sorted.size(), "Il film rimosso non dovrebbe comparire");
+        assertEquals("Barbie", sorted.get(0).getTitolo());
+    }
+
+    @Test
+    @DisplayName("query dovrebbe ordinare i risultati filtrati")
+    void testQuerySorted() {
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 4, "Sci-Fi", 2020, "Tenet"));
+        collection.addMovie(new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"));
+        collection.addMovie(new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2014, "Interstellar"));
+        collection.addMovie(new Movie("Gerwig", ViewingStatus.VISTO, 5, "Commedia", 2023, "Barbie"));
+
+        MovieQuery query = new MovieQuery();
+        query.setText("nolan");
+        query.setSort(SortKey.VALUTAZIONE, false);
+
+        List<Movie> results = collection.query(query);
+
+        assertEquals(3, results.size(), "Dovrebbe trovare 3 film di Nolan");
+        assertEquals("Tenet", results.get(0).getTitolo(), "Voto più basso per primo");
+        assertEquals("Inception", results.get(1).getTitolo(), "A parità di voto vale l'ordine di inserimento");
+        assertEquals("Interstellar", results.get(2).getTitolo());
+    }
+
     // ========== GET ALL GENRES TEST ==========
 
     @Test
@@ -291,6 +764,233 @@ public class MovieCollectionTest {
         assertTrue(genres.isEmpty(), "Collezione vuota dovrebbe tornare una lista vuota");
     }
 
+    @Test
+    @DisplayName("I listener dovrebbero essere avvisati solo quando un genere compare o scompare")
+    void testGenreListener() {
+        List<String> events = new java.util.ArrayList<>();
+        collection.addGenreListener(new GenreListener() {
+            @Override
+            public void genreAdded(String genre) {
+                events.add("+" + genre);
+            }
+
+            @Override
+            public void genreRemoved(String genre) {
+                events.add("-" + genre);
+            }
+        });
+
+        Movie inception = new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2010, "Inception");
+        Movie interstellar = new Movie("Nolan", ViewingStatus.DA_VEDERE, 5, "Sci-Fi", 2014, "Interstellar");
+        collection.addMovie(inception);
+        collection.addMovie(interstellar);
+        assertEquals(List.of("+Sci-Fi"), events, "Il secondo film Sci-Fi non dovrebbe generare eventi");
+
+        interstellar.setStatoVisione(ViewingStatus.VISTO);
+        collection.updateMovie(interstellar);
+        assertEquals(List.of("+Sci-Fi"), events, "Una modifica che non cambia genere non dovrebbe generare eventi");
+
+        inception.setGenere("Thriller");
+        collection.updateMovie(inception);
+        collection.removeMovie(interstellar.getId());
+        assertEquals(List.of("+Sci-Fi", "+Thriller", "-Sci-Fi"), events, "Dovrebbe comparire Thriller e sparire Sci-Fi");
+        assertEquals(List.of("Thriller"), collection.getAllGenres(), "Dovrebbe restare solo Thriller");
+    }
+
+    // ========== CHANGE EVENTS TESTS ==========
+
+    @Test
+    @DisplayName("Aggiunte, modifiche e rimozioni dovrebbero notificare la posizione del film")
+    void testChangeListenerPositions() {
+        List<String> events = new java.util.ArrayList<>();
+        collection.addChangeListener(new MovieChangeListener() {
+            @Override
+            public void movieInserted(int position, Movie movie) {
+                events.add("+" + position + " " + movie.getTitolo());
+            }
+
+            @Override
+            public void moviesInserted(int fromPosition, int toPosition) {
+                events.add("+" + fromPosition + ".." + toPosition);
+            }
+
+            @Override
+            public void movieUpdated(int position, Movie movie) {
+                events.add("~" + position + " " + movie.getTitolo());
+            }
+
+            @Override
+            public void movieRemoved(int position, Movie movie) {
+                events.add("-" + position + " " + movie.getTitolo());
+            }
+
+            @Override
+            public void collectionReloaded() {
+                events.add("reload");
+            }
+        });
+
+        Movie inception = new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception");
+        Movie tenet = new Movie("Nolan", ViewingStatus.VISTO, 4, "Sci-Fi", 2020, "Tenet");
+        Movie barbie = new Movie("Gerwig", ViewingStatus.VISTO, 3, "Commedia", 2023, "Barbie");
+        collection.addMovie(inception);
+        collection.addMovie(tenet);
+        collection.addMovie(barbie);
+
+        collection.removeMovie(inception.getId());
+        barbie.setTitolo("Oppenheimer");
+        collection.updateMovie(barbie);
+        collection.removeMovie("id-inesistente");
+
+        assertEquals(List.of("+0 Inception", "+1 Tenet", "+2 Barbie", "-0 Inception", "~1 Oppenheimer"), events,
+                "Le posizioni dovrebbero seguire l'ordine di getAllMovies");
+        assertSame(barbie, collection.getAllMovies().get(1), "La posizione notificata dovrebbe corrispondere a getAllMovies");
+
+        // Blocco: un solo evento, i duplicati vengono saltati
+        events.clear();
+        int added = collection.addMovies(List.of(
+                new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2014, "Interstellar"),
+                tenet,
+                new Movie("Nolan", ViewingStatus.VISTO, 4, "Sci-Fi", 2017, "Dunkirk")));
+        assertEquals(2, added, "Il film già presente non dovrebbe essere aggiunto");
+        assertEquals(List.of("+2..3"), events, "Un solo evento per il blocco, in coda");
+        assertEquals("Dunkirk", collection.getAllMovies().get(3).getTitolo());
+    }
+
+    @Test
+    @DisplayName("follow dovrebbe ricavare lo stesso risultato della query rieseguita, con le posizioni giuste")
+    void testFollowMatchesQuery() {
+        java.util.Random random = new java.util.Random(5);
+        String[] titoli = {"Alba", "Brina", "Corsa", "Duna", "Eco"};
+        String[] generi = {"Drammatico", "Horror", "Commedia"};
+
+        List<MovieQuery> queries = new java.util.ArrayList<>();
+        queries.add(new MovieQuery());
+        MovieQuery byGenre = new MovieQuery();
+        byGenre.setGenere("Horror");
+        queries.add(byGenre);
+        MovieQuery byTextAndRating = new MovieQuery();
+        byTextAndRating.setText("r");
+        byTextAndRating.setRatingRange(3, 5);
+        queries.add(byTextAndRating);
+        MovieQuery sortedByTitle = new MovieQuery();
+        sortedByTitle.setSort(SortKey.TITOLO, false);
+        queries.add(sortedByTitle);
+        MovieQuery sortedByYear = new MovieQuery();
+        sortedByYear.setStatus(ViewingStatus.VISTO);
+        sortedByYear.setYearRange(1960, 2000);
+        sortedByYear.setSort(SortKey.ANNO, true);
+        queries.add(sortedByYear);
+
+        List<MovieCollection.Cursor> shown = new java.util.ArrayList<>();
+        List<List<String>> tables = new java.util.ArrayList<>();
+        for (MovieQuery query : queries) {
+            shown.add(collection.query(query));
+            tables.add(new java.util.ArrayList<>());
+        }
+        collection.addChangeListener(new MovieChangeListener() {
+            @Override
+            public void movieInserted(int position, Movie movie) {
+                followAll();
+            }
+
+            @Override
+            public void moviesInserted(int fromPosition, int toPosition) {
+                followAll();
+            }
+
+            @Override
+            public void movieUpdated(int position, Movie movie) {
+                followAll();
+            }
+
+            @Override
+            public void movieRemoved(int position, Movie movie) {
+                followAll();
+            }
+
+            @Override
+            public void collectionReloaded() {
+            }
+
+            // Applica l'aggiornamento a una copia degli id, come farebbe la tabella
+            private void followAll() {
+                for (int q = 0; q < queries.size(); q++) {
+                    MovieCollection.CursorUpdate update = collection.follow(shown.get(q));
+                    assertNotNull(update, "Il risultato dovrebbe potersi ricavare dal precedente");
+                    MovieCollection.Cursor cursor = update.getCursor();
+                    List<String> table = tables.get(q);
+                    if (update.isReordered()) {
+                        table.clear();
+                        cursor.forEach(movie -> table.add(movie.getId()));
+                    }
+                    if (update.getRemovedPosition() >= 0) {
+                        table.remove(update.getRemovedPosition());
+                    }
+                    for (int p = update.getFirstInsertedPosition(); p >= 0 && p <= update.getLastInsertedPosition(); p++) {
+                        table.add(p, cursor.get(p).getId());
+                    }
+                    if (update.getUpdatedPosition() >= 0) {
+                        assertEquals(table.get(update.getUpdatedPosition()), cursor.get(update.getUpdatedPosition()).getId(),
+                                "La riga modificata dovrebbe restare al suo posto");
+                    }
+                    shown.set(q, cursor);
+                }
+            }
+        });
+
+        List<Movie> movies = new java.util.ArrayList<>();
+        for (int step = 0; step < 400; step++) {
+            int operation = movies.isEmpty() ? 0 : random.nextInt(4);
+            switch (operation) {
+                case 0: {
+                    Movie movie = new Movie("Regista " + random.nextInt(5), ViewingStatus.values()[random.nextInt(3)],
+                            1 + random.nextInt(5), generi[random.nextInt(3)], 1950 + random.nextInt(60),
+                            titoli[random.nextInt(titoli.length)]);
+                    movies.add(movie);
+                    collection.addMovie(movie);
+                    break;
+                }
+                case 1: {
+                    List<Movie> batch = new java.util.ArrayList<>();
+                    for (int i = 0; i < 1 + random.nextInt(4); i++) {
+                        batch.add(new Movie("Regista", ViewingStatus.VISTO, 1 + random.nextInt(5),
+                                generi[random.nextInt(3)], 1950 + random.nextInt(60), titoli[random.nextInt(titoli.length)]));
+                    }
+                    movies.addAll(batch);
+                    collection.addMovies(batch);
+                    break;
+                }
+                case 2: {
+                    Movie movie = movies.get(random.nextInt(movies.size()));
+                    movie.setTitolo(titoli[random.nextInt(titoli.length)]);
+                    movie.setGenere(generi[random.nextInt(3)]);
+                    movie.setValutazione(1 + random.nextInt(5));
+                    movie.setAnnoUscita(1950 + random.nextInt(60));
+                    collection.updateMovie(movie);
+                    break;
+                }
+                default: {
+                    Movie movie = movies.remove(random.nextInt(movies.size()));
+                    collection.removeMovie(movie.getId());
+                    break;
+                }
+            }
+
+            for (int q = 0; q < queries.size(); q++) {
+                List<String> expected = new java.util.ArrayList<>();
+                collection.query(queries.get(q)).forEach(movie -> expected.add(movie.getId()));
+                assertEquals(expected, tables.get(q), "Query " + q + " al passo " + step + ": tabella diversa dalla query");
+                assertEquals(expected.size(), shown.get(q).size(), "Query " + q + " al passo " + step + ": dimensione");
+                if (!expected.isEmpty()) {
+                    int last = expected.size() - 1;
+                    assertEquals(expected.get(last), shown.get(q).get(last).getId(), "Query " + q + ": ultima riga");
+                    assertEquals(last, shown.get(q).indexOf(shown.get(q).get(last)), "Query " + q + ": indexOf");
+                }
+            }
+        }
+    }
+
     // ========== COUNT TEST ==========
 
     @Test
@@ -0,0 +1,112 @@
+package com.parbonetti.gestorefilm.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// Filtri combinati del FilterPanel: query() sulle bitmap, con i Movie letti solo per le righe
+// visibili (o per tutte), contro i filtri a stream sulla lista usati prima.
+// Avvio: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+//        -Dexec.args="-cp %classpath com.parbonetti.gestorefilm.model.MovieFilterBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MovieFilterBenchmark {
+    private static final int VISIBLE_ROWS = 40;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"genere", "genere+stato+valutazione", "testo+genere", "anni"})
+    String filters;
+
+    private MovieCollection collection;
+    private List<Movie> movies;
+    private MovieQuery query;
+    private Predicate<Movie> predicate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MovieCollection.resetForTesting();
+        collection = MovieCollection.getInstance();
+        movies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            movies.add(new Movie("Regista " + (i % 5000), ViewingStatus.values()[i % 3], 1 + i % 5,
+                    "Genere " + (i % 20), 1900 + i % 120, "Film " + i));
+        }
+        collection.addMovies(movies);
+
+        query = new MovieQuery();
+        predicate = movie -> true;
+        switch (filters) {
+            case "genere":
+                query.setGenere("Genere 7");
+                predicate = movie -> movie.getGenere().equalsIgnoreCase("Genere 7");
+                break;
+            case "genere+stato+valutazione":
+                query.setGenere("Genere 7");
+                query.setStatus(ViewingStatus.VISTO);
+                query.setRatingRange(3, 5);
+                predicate = movie -> movie.getGenere().equalsIgnoreCase("Genere 7")
+                        && movie.getStatoVisione() == ViewingStatus.VISTO
+                        && movie.getValutazione() >= 3;
+                break;
+            case "testo+genere":
+                query.setText("regista 12");
+                query.setGenere("Genere 7");
+                predicate = movie -> (movie.getTitolo().toLowerCase().contains("regista 12")
+                        || movie.getRegista().toLowerCase().contains("regista 12"))
+                        && movie.getGenere().equalsIgnoreCase("Genere 7");
+                break;
+            case "anni":
+                query.setYearRange(1990, 1999);
+                predicate = movie -> movie.getAnnoUscita() >= 1990 && movie.getAnnoUscita() <= 1999;
+                break;
+            default:
+                throw new IllegalArgumentException("Filtro sconosciuto: " + filters);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MovieCollection.resetForTesting();
+    }
+
+    @Benchmark
+    public void bitmapVisibleRows(Blackhole blackhole) {
+        List<Movie> result = collection.query(query);
+        blackhole.consume(result.size());
+        for (int i = 0; i < Math.min(VISIBLE_ROWS, result.size()); i++) {
+            blackhole.consume(result.get(i));
+        }
+    }
+
+    @Benchmark
+    public void bitmapAllRows(Blackhole blackhole) {
+        for (Movie movie : collection.query(query)) {
+            blackhole.consume(movie);
+        }
+    }
+
+    @Benchmark
+    public List<Movie> stream() {
+        return movies.stream().filter(predicate).collect(Collectors.toList());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MovieFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,159 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieCollection;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryPersistenceTest {
+    private Path dir;
+    private String filepath;
+    private MovieCollection collection;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("collezione");
+        filepath = dir.resolve("collezione").toString();
+        collection = MovieCollection.getInstance();
+        collection.setPersistenceStrategy(new BinaryPersistence());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        // Un file che non esiste svuota la collezione, che non resta legata allo snapshot
+        collection.setPersistenceStrategy(new BinaryPersistence());
+        collection.load(dir.resolve("vuota").toString());
+        collection.setPersistenceStrategy(new JSONPersistence());
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // ========== ROUND TRIP TESTS ==========
+
+    @Test
+    @DisplayName("Il formato binario dovrebbe ricaricare la stessa collezione del JSON")
+    void testBinaryRoundTripMatchesJson() {
+        List<Movie> movies = List.of(
+                new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"),
+                new Movie("Nolan", ViewingStatus.IN_VISIONE, 4, "Sci-Fi", 2020, "Tenet"),
+                new Movie("Miyazaki", ViewingStatus.DA_VEDERE, 5, null, 2001, "千と千尋の神隠し"),
+                // Id non UUID (es. da un CSV esterno): va conservato così com'è
+                new Movie("film-42", "Fellini, F.", ViewingStatus.VISTO, 3, "Dramma", 1963, "8½"));
+        List<String> expected = movies.stream().map(Movie::toString).toList();
+
+        new JSONPersistence().save(movies, filepath);
+        new BinaryPersistence().save(movies, filepath);
+
+        List<String> fromJson = new JSONPersistence().load(filepath).stream().map(Movie::toString).toList();
+        List<Movie> fromBinary = new BinaryPersistence().load(filepath);
+
+        assertEquals(expected, fromJson, "Il JSON dovrebbe conservare tutti i campi");
+        assertEquals(fromJson, fromBinary.stream().map(Movie::toString).toList(),
+                "Binario e JSON dovrebbero dare gli stessi film nello stesso ordine");
+        assertEquals(List.of("Sci-Fi", "Dramma"), fromBinary.stream()
+                        .map(Movie::getGenere).filter(Objects::nonNull).distinct().toList(),
+                "I generi dovrebbero arrivare dal dizionario");
+    }
+
+    @Test
+    @DisplayName("Un file binario danneggiato non dovrebbe essere caricato")
+    void testBinaryRejectsCorruptedFile() throws IOException {
+        new BinaryPersistence().save(List.of(new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception")),
+                filepath);
+        collection.load(filepath);
+
+        Path file = dir.resolve("collezione.gfb");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x10;
+        Files.write(file, bytes);
+
+        assertThrows(RuntimeException.class, () -> collection.load(filepath),
+                "Il checksum dovrebbe rilevare il file modificato");
+        assertEquals(1, collection.getMovieCount(), "La collezione non dovrebbe cambiare");
+    }
+
+    @Test
+    @DisplayName("Un record con indice fuori dal dizionario dovrebbe lasciare intatta la collezione")
+    void testBinaryRejectsBadDictionaryIndex() throws IOException {
+        String previous = dir.resolve("precedente").toString();
+        new BinaryPersistence().save(List.of(
+                new Movie("Gerwig", ViewingStatus.DA_VEDERE, 3, "Commedia", 2023, "Barbie"),
+                new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"),
+                new Movie("Nolan", ViewingStatus.IN_VISIONE, 4, "Sci-Fi", 2020, "Tenet")), previous);
+        collection.load(previous);
+
+        // Il secondo record punta al regista 127 su un dizionario di 3 stringhe: il checksum
+        // viene ricalcolato, quindi l'errore deve emergere dalla lettura dei record
+        new BinaryPersistence().save(List.of(
+                new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"),
+                new Movie("Villeneuve", ViewingStatus.VISTO, 4, null, 2016, "Arrival")), filepath);
+        File file = dir.resolve("collezione.gfb").toFile();
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file.toPath()), 0, (int) SafeFiles.contentLength(file));
+        int record = content.getInt(24) + content.getInt(content.getInt(20) + 4);
+        int regista = record + 1 + 16 + 1 + "Arrival".length();
+        assertEquals(2, content.get(regista), "Il regista dovrebbe essere la terza stringa del dizionario");
+        content.put(regista, (byte) 127);
+        SafeFiles.writeBinary(file.getPath(), out -> out.write(content.array(), 0, content.limit()));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> collection.load(filepath));
+        assertTrue(e.getCause().getMessage().contains("Film 1"), "Il messaggio dovrebbe indicare il record: "
+                + e.getCause().getMessage());
+        assertEquals(List.of("Barbie", "Inception", "Tenet"), collection.getAllMovies().stream()
+                .map(Movie::getTitolo).toList(), "La collezione non dovrebbe essere svuotata né riempita a metà");
+        assertEquals(List.of("Commedia", "Sci-Fi"), collection.getAllGenres());
+        assertEquals(2, collection.filterByGenere("Sci-Fi").size(), "Gli indici dovrebbero restare quelli di prima");
+    }
+
+    // ========== LAZY LOAD TESTS ==========
+
+    @Test
+    @DisplayName("Dopo il caricamento binario i film letti su richiesta dovrebbero comportarsi come quelli in memoria")
+    void testBinaryLazyLoadCopyOnWrite() {
+        Movie inception = new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception");
+        Movie tenet = new Movie("Nolan", ViewingStatus.IN_VISIONE, 4, "Sci-Fi", 2020, "Tenet");
+        Movie barbie = new Movie("Gerwig", ViewingStatus.DA_VEDERE, 3, "Commedia", 2023, "Barbie");
+        new BinaryPersistence().save(List.of(inception, tenet, barbie), filepath);
+        collection.load(filepath);
+
+        assertEquals(3, collection.getMovieCount());
+        assertEquals(List.of("Commedia", "Sci-Fi"), collection.getAllGenres(), "Gli indici dovrebbero essere completi");
+        assertEquals(2, collection.filterByGenere("Sci-Fi").size());
+        Movie loaded = collection.getMovie(tenet.getId());
+        assertEquals("Tenet", loaded.getTitolo());
+        assertEquals(1, collection.query(null).indexOf(loaded), "La posizione dovrebbe essere quella del file");
+
+        // Modifica sul posto come fa il form: la riga resta in memoria con i nuovi valori
+        loaded.setTitolo("Oppenheimer");
+        loaded.setAnnoUscita(2023);
+        collection.updateMovie(loaded);
+        assertSame(loaded, collection.getMovie(tenet.getId()), "Il film modificato non dovrebbe essere riletto dal file");
+        assertEquals(List.of("Oppenheimer"), collection.searchByTitleOrAuthor("oppen").stream()
+                .map(Movie::getTitolo).toList());
+        assertEquals(2, collection.filterByYearRange(2023, 2023).size());
+
+        collection.removeMovie(inception.getId());
+        assertNull(collection.getMovie(inception.getId()));
+        assertEquals(List.of("Oppenheimer", "Barbie"), collection.getAllMovies().stream()
+                .map(Movie::getTitolo).toList());
+
+        // Il file non cambia finché non si salva
+        collection.load(filepath);
+        assertEquals("Tenet", collection.getMovie(tenet.getId()).getTitolo());
+        assertEquals(3, collection.getMovieCount());
+    }
+}
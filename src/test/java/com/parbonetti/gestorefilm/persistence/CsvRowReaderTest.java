@@ -0,0 +1,113 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvRowReaderTest {
+
+    // ========== FIELD TESTS ==========
+
+    @Test
+    @DisplayName("Una virgola tra virgolette dovrebbe restare nel campo")
+    void testQuotedComma() throws IOException {
+        assertEquals(List.of(List.of("1", "Fellini, F.", "8½")), records("1,\"Fellini, F.\",8½\n"));
+    }
+
+    @Test
+    @DisplayName("\"\" tra virgolette dovrebbe diventare una virgoletta")
+    void testEscapedQuote() throws IOException {
+        assertEquals(List.of(List.of("Il \"Sorpasso\"", "", "\"")),
+                records("\"Il \"\"Sorpasso\"\"\",\"\",\"\"\"\"\n"));
+    }
+
+    @Test
+    @DisplayName("Gli a capo tra virgolette, anche CRLF, dovrebbero restare nel campo")
+    void testNewlinesInsideQuotes() throws IOException {
+        assertEquals(List.of(List.of("riga 1\nriga 2", "a\r\nb"), List.of("x", "y")),
+                records("\"riga 1\nriga 2\",\"a\r\nb\"\r\nx,y\r\n"));
+    }
+
+    @Test
+    @DisplayName("L'ultimo record dovrebbe essere letto anche senza a capo finale")
+    void testMissingFinalNewline() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), records("a,b\nc,d"));
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d\"e")), records("a,b\r\nc,\"d\"\"e\""));
+    }
+
+    @Test
+    @DisplayName("Campi vuoti e righe vuote dovrebbero essere riconosciuti")
+    void testEmptyFields() throws IOException {
+        try (CsvRowReader reader = new CsvRowReader(new StringReader("a,,\n\n,b\n"), 1)) {
+            assertEquals(3, reader.next());
+            assertEquals("", reader.field(1));
+            assertEquals("", reader.field(2));
+            assertEquals(1, reader.next());
+            assertTrue(reader.isBlank(), "Una riga vuota dovrebbe essere un solo campo vuoto");
+            assertEquals(2, reader.next());
+            assertFalse(reader.isBlank());
+            assertEquals(-1, reader.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Virgolette non chiuse a fine file dovrebbero dare un errore con la riga")
+    void testUnclosedQuote() {
+        IOException e = assertThrows(IOException.class, () -> records("a,b\n\"aperto,\nc\n"));
+        assertTrue(e.getMessage().contains("riga 2"), "Il messaggio dovrebbe indicare la riga: " + e.getMessage());
+    }
+
+    // ========== LINE NUMBER TESTS ==========
+
+    @Test
+    @DisplayName("lineNumber dovrebbe dare la prima riga fisica di ogni record, anche multi-riga")
+    void testLineNumbers() throws IOException {
+        String csv = "id,titolo\n"
+                + "1,\"due\nrighe\"\n"
+                + "2,\"tre\r\nrighe\r\nCRLF\"\r\n"
+                + "3,semplice\n";
+        List<Long> lines = new ArrayList<>();
+        try (CsvRowReader reader = new CsvRowReader(new StringReader(csv), 1)) {
+            while (reader.next() >= 0) {
+                lines.add(reader.lineNumber());
+            }
+        }
+
+        assertEquals(List.of(1L, 2L, 4L, 7L), lines);
+    }
+
+    @Test
+    @DisplayName("lineNumber dovrebbe partire dalla prima riga indicata (pezzo di file)")
+    void testLineNumbersFromOffset() throws IOException {
+        try (CsvRowReader reader = new CsvRowReader(new StringReader("a\n\"b\nc\"\nd"), 41)) {
+            reader.next();
+            assertEquals(41, reader.lineNumber());
+            reader.next();
+            assertEquals(42, reader.lineNumber());
+            reader.next();
+            assertEquals(44, reader.lineNumber());
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    private static List<List<String>> records(String csv) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvRowReader reader = new CsvRowReader(new StringReader(csv), 1)) {
+            int fields;
+            while ((fields = reader.next()) >= 0) {
+                List<String> record = new ArrayList<>();
+                for (int i = 0; i < fields; i++) {
+                    record.add(reader.field(i));
+                }
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,145 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JSONPersistenceTest {
+    private Path dir;
+    private String filepath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("json");
+        filepath = dir.resolve("collezione").toString();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // ========== ROUND TRIP TESTS ==========
+
+    @Test
+    @DisplayName("Salvataggio e caricamento dovrebbero conservare genere null e testo non ASCII")
+    void testRoundTrip() {
+        List<Movie> movies = List.of(
+                new Movie("Jeunet", ViewingStatus.VISTO, 5, "Commedia", 2001, "Le Fabuleux Destin d'Amélie Poulain"),
+                new Movie("宮崎駿", ViewingStatus.DA_VEDERE, 4, null, 2001, "千と千尋の神隠し"),
+                new Movie("Fellini", ViewingStatus.IN_VISIONE, 3, "Dramma", 1963, "8½ \"Otto e mezzo\"\n"));
+
+        for (boolean prettyPrinting : new boolean[]{false, true}) {
+            JSONPersistence persistence = new JSONPersistence(prettyPrinting);
+            persistence.save(movies, filepath);
+
+            assertEquals(strings(movies), strings(persistence.load(filepath)),
+                    "Tutti i campi dovrebbero tornare uguali (prettyPrinting=" + prettyPrinting + ")");
+        }
+        assertNull(new JSONPersistence().load(filepath).get(1).getGenere(), "Il genere null non dovrebbe diventare \"\"");
+    }
+
+    @Test
+    @DisplayName("Il file salvato dovrebbe essere JSON standard, senza checksum in coda")
+    void testSavedFileIsPlainJson() throws IOException {
+        new JSONPersistence().save(List.of(new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception")),
+                filepath);
+
+        String text = Files.readString(Path.of(filepath + ".json"), StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("[") && text.endsWith("]"), "Il file esportato dovrebbe contenere solo l'array");
+    }
+
+    @Test
+    @DisplayName("Il caricamento progressivo dovrebbe dare gli stessi film a blocchi")
+    void testLoadInBatches() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            movies.add(new Movie("Regista " + i, ViewingStatus.VISTO, 1 + i % 5, "Genere", 2000 + i, "Film " + i));
+        }
+        new JSONPersistence().save(movies, filepath);
+
+        List<Integer> sizes = new ArrayList<>();
+        List<Movie> loaded = new ArrayList<>();
+        new JSONPersistence().load(filepath, 10, batch -> {
+            sizes.add(batch.size());
+            loaded.addAll(batch);
+        });
+
+        assertEquals(List.of(10, 10, 5), sizes);
+        assertEquals(strings(movies), strings(loaded));
+    }
+
+    // ========== COMPATIBILITY TESTS ==========
+
+    @Test
+    @DisplayName("Un file salvato dalla versione con Gson (indentato) dovrebbe caricarsi")
+    void testLoadsOldGsonFormat() throws IOException {
+        // Come lo scriveva Gson con setPrettyPrinting(): campi null omessi, caratteri non ASCII
+        // così come sono e alcuni escape HTML
+        String old = String.join("\n",
+                "[",
+                "  {",
+                "    \"id\": \"3f1c2a9e-7d41-4c1b-9b7a-0c2e5d8f6a11\",",
+                "    \"titolo\": \"L\\u0027Atalante\",",
+                "    \"regista\": \"Jean Vigo\",",
+                "    \"annoUscita\": 1934,",
+                "    \"genere\": \"Dramma\",",
+                "    \"valutazione\": 4,",
+                "    \"statoVisione\": \"VISTO\"",
+                "  },",
+                "  {",
+                "    \"id\": \"9a7d0b3c-51e2-4f60-8c1d-2b4e6f8a0c33\",",
+                "    \"titolo\": \"千と千尋の神隠し\",",
+                "    \"regista\": \"Miyazaki \\u003c宮崎駿\\u003e\",",
+                "    \"annoUscita\": 2001,",
+                "    \"valutazione\": 5,",
+                "    \"statoVisione\": \"DA_VEDERE\"",
+                "  }",
+                "]");
+        Files.writeString(Path.of(filepath + ".json"), old, StandardCharsets.UTF_8);
+
+        List<Movie> loaded = new JSONPersistence().load(filepath);
+
+        assertEquals(2, loaded.size());
+        assertEquals("3f1c2a9e-7d41-4c1b-9b7a-0c2e5d8f6a11", loaded.get(0).getId(), "L'id dovrebbe essere conservato");
+        assertEquals("L'Atalante", loaded.get(0).getTitolo());
+        assertEquals(ViewingStatus.VISTO, loaded.get(0).getStatoVisione());
+        assertEquals("Miyazaki <宮崎駿>", loaded.get(1).getRegista());
+        assertNull(loaded.get(1).getGenere(), "Un genere assente dovrebbe restare null");
+        assertEquals(2001, loaded.get(1).getAnnoUscita());
+    }
+
+    @Test
+    @DisplayName("Un file con checksum in coda (auto-save) dovrebbe caricarsi")
+    void testLoadsChecksummedFile() {
+        List<Movie> movies = List.of(new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception"));
+        new JSONPersistence(false, true).save(movies, filepath);
+
+        assertEquals(strings(movies), strings(new JSONPersistence().load(filepath)));
+    }
+
+    // ========== HELPERS ==========
+
+    private static List<String> strings(List<Movie> movies) {
+        List<String> strings = new ArrayList<>();
+        for (Movie movie : movies) {
+            strings.add(movie.toString());
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,180 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieJournalTest {
+    private Path dir;
+    private String journalPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal");
+        journalPath = dir.resolve("collezione.journal").toString();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // ========== READ TESTS ==========
+
+    @Test
+    @DisplayName("read dovrebbe restituire i record nell'ordine di scrittura")
+    void testReadInOrder() throws IOException {
+        Movie inception = new Movie("Nolan", ViewingStatus.VISTO, 5, "Sci-Fi", 2010, "Inception");
+        Movie spirited = new Movie("Miyazaki", ViewingStatus.DA_VEDERE, 4, null, 2001, "千と千尋の神隠し");
+        try (MovieJournal journal = new MovieJournal(journalPath)) {
+            journal.append(MovieJournal.put(inception));
+            journal.append(MovieJournal.put(spirited));
+            journal.append(MovieJournal.delete(inception.getId()));
+        }
+
+        List<String> records = records(journalPath);
+
+        assertEquals(List.of("PUT " + inception, "PUT " + spirited, "DELETE " + inception.getId()), records,
+                "Tutti i campi dovrebbero tornare uguali, genere null compreso");
+    }
+
+    @Test
+    @DisplayName("Un titolo oltre i 64 KB dovrebbe essere scritto e riletto")
+    void testLongStrings() throws IOException {
+        // Caratteri da 3 byte: oltre il limite di writeUTF anche con meno di 64 K caratteri
+        Movie movie = new Movie("宮崎駿".repeat(10000), ViewingStatus.VISTO, 5, "Animazione",
+                2001, "千と千尋の神隠し".repeat(5000));
+        try (MovieJournal journal = new MovieJournal(journalPath)) {
+            journal.append(MovieJournal.put(movie));
+            journal.append(MovieJournal.delete(movie.getId()));
+        }
+
+        assertEquals(List.of("PUT " + movie, "DELETE " + movie.getId()), records(journalPath));
+    }
+
+    @Test
+    @DisplayName("read dovrebbe fermarsi al primo record con CRC errato")
+    void testReadStopsAtBadChecksum() throws IOException {
+        List<Movie> movies = movies(3);
+        List<byte[]> written = writeAll(movies);
+
+        byte[] bytes = Files.readAllBytes(Path.of(journalPath));
+        bytes[written.get(0).length + written.get(1).length / 2] ^= 0x04;
+        Files.write(Path.of(journalPath), bytes);
+
+        assertEquals(List.of("PUT " + movies.get(0)), records(journalPath),
+                "I record dopo quello danneggiato non dovrebbero essere riapplicati");
+    }
+
+    @Test
+    @DisplayName("read con una lunghezza massima dovrebbe ignorare i record successivi")
+    void testReadUpToLength() throws IOException {
+        List<Movie> movies = movies(3);
+        List<byte[]> written = writeAll(movies);
+
+        List<String> records = new ArrayList<>();
+        long length = MovieJournal.read(journalPath, written.get(0).length + written.get(1).length,
+                movie -> records.add(movie.getTitolo()), id -> records.add(id));
+
+        assertEquals(List.of("Film 0", "Film 1"), records);
+        assertEquals(written.get(0).length + written.get(1).length, length);
+    }
+
+    // ========== OPEN TESTS ==========
+
+    @Test
+    @DisplayName("All'apertura un record incompleto in coda dovrebbe essere scartato")
+    void testOpenTruncatesTornTail() throws IOException {
+        List<Movie> movies = movies(3);
+        List<byte[]> written = writeAll(movies.subList(0, 2));
+        byte[] torn = MovieJournal.put(movies.get(2));
+        Files.write(Path.of(journalPath), Arrays.copyOf(torn, torn.length / 2), StandardOpenOption.APPEND);
+
+        try (MovieJournal journal = new MovieJournal(journalPath)) {
+            assertEquals(written.get(0).length + written.get(1).length, journal.size(),
+                    "Il record troncato dovrebbe essere tagliato via");
+            // I nuovi record vanno subito dopo l'ultimo valido
+            journal.append(MovieJournal.delete(movies.get(0).getId()));
+        }
+
+        assertEquals(List.of("PUT " + movies.get(0), "PUT " + movies.get(1), "DELETE " + movies.get(0).getId()),
+                records(journalPath));
+        assertFalse(Files.exists(Path.of(journalPath + ".corrupt")),
+                "Una scrittura interrotta non è corruzione: niente copia");
+    }
+
+    @Test
+    @DisplayName("All'apertura un record danneggiato a metà file dovrebbe essere conservato in .corrupt")
+    void testOpenBacksUpCorruptedJournal() throws IOException {
+        List<Movie> movies = movies(3);
+        List<byte[]> written = writeAll(movies);
+        byte[] bytes = Files.readAllBytes(Path.of(journalPath));
+        bytes[written.get(0).length + 10] ^= 0x01;
+        Files.write(Path.of(journalPath), bytes);
+
+        try (MovieJournal journal = new MovieJournal(journalPath)) {
+            assertEquals(written.get(0).length, journal.size(), "Il journal dovrebbe ripartire dopo l'ultimo record valido");
+        }
+
+        Path backup = Path.of(journalPath + ".corrupt");
+        assertTrue(Files.exists(backup), "Il journal danneggiato dovrebbe essere copiato prima di tagliarlo");
+        assertArrayEquals(bytes, Files.readAllBytes(backup), "La copia dovrebbe essere il file originale");
+    }
+
+    @Test
+    @DisplayName("truncate dovrebbe svuotare il journal dopo uno snapshot")
+    void testTruncate() throws IOException {
+        try (MovieJournal journal = new MovieJournal(journalPath)) {
+            journal.append(MovieJournal.put(movies(1).get(0)));
+            journal.truncate();
+            assertEquals(0, journal.size());
+            journal.append(MovieJournal.delete("id-1"));
+        }
+
+        assertEquals(List.of("DELETE id-1"), records(journalPath));
+    }
+
+    // ========== HELPERS ==========
+
+    private static List<Movie> movies(int count) {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            movies.add(new Movie("Regista " + i, ViewingStatus.VISTO, 1 + i % 5, "Genere", 2000 + i, "Film " + i));
+        }
+        return movies;
+    }
+
+    private List<byte[]> writeAll(List<Movie> movies) throws IOException {
+        List<byte[]> written = new ArrayList<>();
+        try (MovieJournal journal = new MovieJournal(journalPath)) {
+            for (Movie movie : movies) {
+                byte[] record = MovieJournal.put(movie);
+                journal.append(record);
+                written.add(record);
+            }
+        }
+        return written;
+    }
+
+    private static List<String> records(String journalPath) throws IOException {
+        List<String> records = new ArrayList<>();
+        MovieJournal.read(journalPath, movie -> records.add("PUT " + movie), id -> records.add("DELETE " + id));
+        return records;
+    }
+}
@@ -0,0 +1,150 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelCsvImportTest {
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("csv");
+        file = dir.resolve("collezione.csv");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // ========== EQUIVALENCE TESTS ==========
+
+    @Test
+    @DisplayName("L'import a pezzi dovrebbe dare gli stessi film ed errori della lettura sequenziale")
+    void testMatchesSequential() throws IOException {
+        String csv = csv(new Random(5), 300);
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        List<String> expected = sequential(csv);
+
+        // Pezzi piccoli: i confini cadono dentro campi tra virgolette, virgolette doppie,
+        // a capo dentro i campi e caratteri multi-byte
+        for (long chunkSize : new long[]{1, 2, 3, 7, 13, 64, 100, 1000, csv.length()}) {
+            for (int parallelism : new int[]{1, 3}) {
+                assertEquals(expected, parallel(chunkSize, parallelism),
+                        "Risultato diverso con pezzi di " + chunkSize + " byte e " + parallelism + " thread");
+            }
+        }
+    }
+
+    // ========== CHECKSUM TESTS ==========
+
+    @Test
+    @DisplayName("Il checksum in coda dovrebbe essere verificato durante il conteggio dei pezzi")
+    void testChecksumVerifiedInChunks() throws IOException {
+        String csv = csv(new Random(9), 50);
+        SafeFiles.write(file.toString(), true, writer -> writer.write(csv));
+
+        assertEquals(sequential(csv), parallel(17, 2), "Il trailer non dovrebbe finire tra i film");
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+        List<Movie> delivered = new ArrayList<>();
+        assertThrows(IOException.class, () -> new ParallelCsvImport(file.toFile(), 2, 17).run(delivered::add, e -> { }),
+                "Un file modificato dovrebbe essere rifiutato");
+        assertTrue(delivered.isEmpty(), "Nessun film dovrebbe arrivare da un file danneggiato");
+    }
+
+    @Test
+    @DisplayName("combineCrc dovrebbe dare il CRC32 del contenuto intero")
+    void testCombineCrc() {
+        byte[] bytes = csv(new Random(3), 20).getBytes(StandardCharsets.UTF_8);
+        CRC32 whole = new CRC32();
+        whole.update(bytes);
+        for (int split : new int[]{0, 1, 100, bytes.length - 1, bytes.length}) {
+            CRC32 a = new CRC32();
+            a.update(bytes, 0, split);
+            CRC32 b = new CRC32();
+            b.update(bytes, split, bytes.length - split);
+
+            assertEquals(whole.getValue(), SafeFiles.combineCrc(a.getValue(), b.getValue(), bytes.length - split),
+                    "CRC combinato sbagliato con divisione a " + split);
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    // Film con campi scomodi, qualche riga vuota e qualche riga non valida (gli errori riportano la riga)
+    private static String csv(Random random, int rows) {
+        String[] titles = {"Inception", "Fellini, F.", "Il \"Sorpasso\"", "riga 1\nriga 2", "a\r\nb",
+                "千と千尋の神隠し", "Amélie", ",", "\"", ""};
+        StringBuilder csv = new StringBuilder("ID,Titolo,Regista,Anno,Genere,Valutazione,Stato\n");
+        for (int i = 0; i < rows; i++) {
+            switch (random.nextInt(12)) {
+                case 0:
+                    csv.append('\n');
+                    break;
+                case 1:
+                    csv.append("id-").append(i).append(",solo,tre campi\n");
+                    break;
+                default:
+                    String title = titles[random.nextInt(titles.length)] + " " + i;
+                    csv.append("id-").append(i).append(',')
+                            .append(quote(title)).append(',')
+                            .append(quote("Regista, " + i)).append(',')
+                            .append(1950 + random.nextInt(70)).append(',')
+                            .append(random.nextBoolean() ? "" : quote("Dramma")).append(',')
+                            .append(random.nextInt(7)).append(',') // 0 e 6: valutazione non valida
+                            .append(ViewingStatus.values()[random.nextInt(3)])
+                            .append(random.nextBoolean() ? "\n" : "\r\n");
+                    break;
+            }
+        }
+        return csv.toString();
+    }
+
+    private static String quote(String field) {
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    // Film e poi errori: l'import a pezzi consegna gli errori di un pezzo prima dei suoi film,
+    // quindi l'ordine relativo tra i due si confronta separatamente
+    private static List<String> sequential(String csv) throws IOException {
+        List<String> movies = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        try (CsvRowReader reader = new CsvRowReader(new StringReader(csv), 1)) {
+            reader.next();
+            CSVPersistence.parseRows(reader, movie -> movies.add(movie.toString()), errors::add);
+        }
+        movies.addAll(errors);
+        return movies;
+    }
+
+    private List<String> parallel(long chunkSize, int parallelism) throws IOException {
+        List<String> movies = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        new ParallelCsvImport(file.toFile(), parallelism, chunkSize).run(movie -> movies.add(movie.toString()), errors::add);
+        movies.addAll(errors);
+        return movies;
+    }
+}
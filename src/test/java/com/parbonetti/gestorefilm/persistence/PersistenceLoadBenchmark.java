@@ -0,0 +1,98 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import com.parbonetti.gestorefilm.model.Movie;
+import com.parbonetti.gestorefilm.model.MovieCollection;
+import com.parbonetti.gestorefilm.model.ViewingStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Tempo di caricamento dello stesso catalogo nei tre formati: decodifica di tutti i film (load)
+// e caricamento nella collezione, che per il binario lascia i film nel file mappato.
+// Avvio: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+//        -Dexec.args="-cp %classpath com.parbonetti.gestorefilm.persistence.PersistenceLoadBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenceLoadBenchmark {
+    @Param({"100000", "1000000"})
+    int size;
+
+    // csv-parallelo: CSVPersistence con un thread per core
+    @Param({"json", "csv", "csv-parallelo", "binario"})
+    String format;
+
+    private Path dir;
+    private String filepath;
+    private PersistenceStrategy persistence;
+    private MovieCollection collection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Movie> movies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            movies.add(new Movie("Regista " + (i % 5000), ViewingStatus.values()[i % 3], 1 + i % 5,
+                    "Genere " + (i % 20), 1900 + i % 120, "Film " + i));
+        }
+        switch (format) {
+            case "json":
+                persistence = new JSONPersistence();
+                break;
+            case "csv":
+                persistence = new CSVPersistence();
+                break;
+            case "csv-parallelo":
+                persistence = new CSVPersistence(Runtime.getRuntime().availableProcessors());
+                break;
+            default:
+                persistence = new BinaryPersistence();
+                break;
+        }
+        dir = Files.createTempDirectory("benchmark");
+        filepath = dir.resolve("collezione").toString();
+        persistence.save(movies, filepath);
+
+        collection = MovieCollection.getInstance();
+        collection.setPersistenceStrategy(persistence);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        collection.load(dir.resolve("vuota").toString());
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Movie> load() {
+        return persistence.load(filepath);
+    }
+
+    @Benchmark
+    public int loadIntoCollection() {
+        collection.load(filepath);
+        return collection.getMovieCount();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PersistenceLoadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
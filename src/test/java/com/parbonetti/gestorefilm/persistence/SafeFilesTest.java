@@ -0,0 +1,125 @@
+package com.parbonetti.gestorefilm.persistence;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SafeFilesTest {
+    private static final String CONTENT = "[{\"titolo\":\"Amélie\"},\n{\"titolo\":\"千と千尋の神隠し\"}]";
+
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("safefiles");
+        file = dir.resolve("collezione.json");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // ========== ATOMIC WRITE TESTS ==========
+
+    @Test
+    @DisplayName("write dovrebbe sostituire il file esistente senza lasciare temporanei")
+    void testWriteReplacesFile() throws IOException {
+        SafeFiles.write(file.toString(), false, writer -> writer.write("vecchio"));
+        SafeFiles.write(file.toString(), false, writer -> writer.write(CONTENT));
+
+        assertEquals(CONTENT, Files.readString(file), "Il file dovrebbe avere il nuovo contenuto");
+        assertFalse(Files.exists(dir.resolve("collezione.json.tmp")), "Il file temporaneo non dovrebbe restare");
+    }
+
+    @Test
+    @DisplayName("Un errore durante la scrittura dovrebbe lasciare intatto il file precedente")
+    void testFailedWriteKeepsPreviousFile() throws IOException {
+        SafeFiles.write(file.toString(), true, writer -> writer.write(CONTENT));
+        byte[] before = Files.readAllBytes(file);
+
+        assertThrows(IOException.class, () -> SafeFiles.write(file.toString(), true, writer -> {
+            writer.write("[{\"titolo\":");
+            throw new IOException("disco pieno");
+        }));
+
+        assertArrayEquals(before, Files.readAllBytes(file), "Il file precedente non dovrebbe essere toccato");
+        assertFalse(Files.exists(dir.resolve("collezione.json.tmp")), "Il file temporaneo dovrebbe essere rimosso");
+    }
+
+    // ========== CHECKSUM TESTS ==========
+
+    @Test
+    @DisplayName("Un file con checksum dovrebbe rileggersi senza la riga del checksum")
+    void testChecksumRoundTrip() throws IOException {
+        SafeFiles.write(file.toString(), true, writer -> writer.write(CONTENT));
+
+        assertTrue(Files.readString(file).contains("#crc32:"), "I file interni dovrebbero avere il checksum in coda");
+        assertEquals(CONTENT, read(file), "Il contenuto letto non dovrebbe comprendere il checksum");
+    }
+
+    @Test
+    @DisplayName("Un file senza checksum dovrebbe restare identico al contenuto e caricarsi")
+    void testFileWithoutChecksum() throws IOException {
+        SafeFiles.write(file.toString(), false, writer -> writer.write(CONTENT));
+
+        assertEquals(CONTENT, Files.readString(file), "JSON e CSV esportati non dovrebbero avere righe aggiunte");
+        assertEquals(CONTENT, read(file));
+    }
+
+    @Test
+    @DisplayName("Un file con checksum modificato dovrebbe essere rifiutato")
+    void testCorruptedFileRejected() throws IOException {
+        SafeFiles.write(file.toString(), true, writer -> writer.write(CONTENT));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[3] ^= 0x20;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> read(file), "Il checksum dovrebbe rilevare il byte cambiato");
+    }
+
+    @Test
+    @DisplayName("Un file binario troncato o senza checksum dovrebbe essere rifiutato")
+    void testTruncatedBinaryRejected() throws IOException {
+        byte[] content = new byte[1000];
+        Arrays.fill(content, (byte) 7);
+        Path binary = dir.resolve("collezione.gfb");
+        SafeFiles.writeBinary(binary.toString(), out -> out.write(content));
+        byte[] bytes = Files.readAllBytes(binary);
+
+        assertEquals(content.length, SafeFiles.verify(ByteBuffer.wrap(bytes), "intero"),
+                "La lunghezza verificata dovrebbe escludere il checksum");
+        assertThrows(IOException.class,
+                () -> SafeFiles.verify(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1)), "troncato"));
+        assertThrows(IOException.class,
+                () -> SafeFiles.verify(ByteBuffer.wrap(Arrays.copyOf(bytes, 500)), "troncato a metà"));
+    }
+
+    // ========== HELPERS ==========
+
+    private static String read(Path file) throws IOException {
+        StringBuilder text = new StringBuilder();
+        try (Reader reader = SafeFiles.openVerified(file.toFile())) {
+            char[] buffer = new char[256];
+            int read;
+            while ((read = reader.read(buffer)) >= 0) {
+                text.append(buffer, 0, read);
+            }
+        }
+        return text.toString();
+    }
+}